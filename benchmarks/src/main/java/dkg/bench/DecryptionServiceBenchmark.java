@@ -0,0 +1,83 @@
+package dkg.bench;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dkg.DecryptionService;
+import dkg.KeyShare;
+
+/**
+ * Decryptions per second under concurrent load, through a {@link DecryptionService}
+ * that coalesces the callers' requests into batches, against every caller
+ * decrypting on its own.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class DecryptionServiceBenchmark {
+	private static final int CIPHERTEXTS = 64;
+
+	@State(Scope.Benchmark)
+	public static class ServiceState {
+		@Param({"32"})
+		public int maxBatch;
+
+		public List<KeyShare> keyShares;
+		public List<List<BigInteger>> ciphertexts;
+		public DecryptionService service;
+
+		@Setup(Level.Trial)
+		public void setUp(DkgState dkg) {
+			keyShares = IntStream.range(0, dkg.n)
+					.mapToObj(i-> KeyShare.of(dkg.dkgPoints.get(i), i, dkg.quals.get(0)))
+					.collect(Collectors.toList());
+			ciphertexts = IntStream.range(0, CIPHERTEXTS)
+					.mapToObj(k-> dkg.factory.encrypt(BigInteger.valueOf(k), dkg.label, dkg.publicVal))
+					.collect(Collectors.toList());
+			service = new DecryptionService(dkg.factory, keyShares, maxBatch, DecryptionService.DEFAULT_QUEUE_CAPACITY,
+					Duration.ZERO);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			service.close();
+		}
+
+		List<BigInteger> anyCiphertext() {
+			return ciphertexts.get(ThreadLocalRandom.current().nextInt(CIPHERTEXTS));
+		}
+	}
+
+	@Benchmark
+	public BigInteger service(ServiceState state) throws InterruptedException {
+		return state.service.decrypt(state.anyCiphertext());
+	}
+
+	@Benchmark
+	public BigInteger direct(DkgState dkg, ServiceState state) {
+		return dkg.factory.decrypt(state.anyCiphertext(), state.keyShares);
+	}
+}
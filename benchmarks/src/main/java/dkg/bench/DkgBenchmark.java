@@ -0,0 +1,61 @@
+package dkg.bench;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dkg.PerdersonVss;
+
+/**
+ * One benchmark per protocol phase of {@link dkg.PerdersonVssFactory}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DkgBenchmark {
+
+	@Benchmark
+	public PerdersonVss dealerCreation(DkgState state) {
+		return state.factory.get();
+	}
+
+	@Benchmark
+	public List<List<Integer>> calCollectedQuals(DkgState state) {
+		return state.factory.calCollectedQuals(state.dkgPoints);
+	}
+
+	@Benchmark
+	public List<BigInteger> calCollectedSecret1(DkgState state) {
+		return state.factory.calCollectedSecret1(state.quals, state.dkgPoints);
+	}
+
+	@Benchmark
+	public List<BigInteger> calCollectedSecret2(DkgState state) {
+		return state.factory.calCollectedSecret2(state.quals, state.dkgPoints);
+	}
+
+	@Benchmark
+	public List<BigInteger> calCollectedPublicVal(DkgState state) {
+		return state.factory.calCollectedPublicVal(state.quals, state.dkgPoints);
+	}
+
+	@Benchmark
+	public List<BigInteger> encrypt(DkgState state) {
+		return state.factory.encrypt(state.message, state.label, state.publicVal);
+	}
+
+	@Benchmark
+	public BigInteger decrypt(DkgState state) {
+		return state.factory.decrypt(state.ciphertext, state.dkgPoints, state.quals.get(0));
+	}
+}
@@ -0,0 +1,88 @@
+package dkg.bench;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import dkg.GroupParams;
+import dkg.PerdersonVss;
+import dkg.PerdersonVssFactory;
+import dkg.crypto.DrbgSource;
+
+/**
+ * A finished DKG run for one (t, n, group) combination, shared by all
+ * benchmark phases so each one is measured against the same inputs. Groups are
+ * fixed parameter sets, so runs of different versions measure the same group.
+ */
+@State(Scope.Benchmark)
+public class DkgState {
+	// same coefficients and nonces in every fork
+	private static final long SEED = 20240601L;
+
+	// threshold/participants
+	@Param({"5/10", "16/32", "32/64"})
+	public String thresholds;
+
+	@Param({"modp1024", "modp2048", "modp3072", "secp256k1"})
+	public String group;
+
+	public int t;
+	public int n;
+	public GroupParams params;
+	public PerdersonVssFactory factory;
+	public List<PerdersonVss> dkgPoints;
+	public List<List<Integer>> quals;
+	public BigInteger publicVal;
+	public BigInteger message;
+	public BigInteger label;
+	public List<BigInteger> ciphertext;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String[] parts = thresholds.split("/");
+		t = Integer.parseInt(parts[0]);
+		n = Integer.parseInt(parts[1]);
+		params = group(group);
+		factory = new PerdersonVssFactory(params, t, n);
+		factory.setRandomness(DrbgSource.seeded(SEED));
+		dkgPoints = Stream.generate(factory)
+				.limit(n)
+				.collect(Collectors.toList());
+		quals = factory.calCollectedQuals(dkgPoints);
+		List<BigInteger> secret1s = factory.calCollectedSecret1(quals, dkgPoints);
+		List<BigInteger> secret2s = factory.calCollectedSecret2(quals, dkgPoints);
+		List<BigInteger> publicVals = factory.calCollectedPublicVal(quals, dkgPoints);
+		IntStream.range(0, n).forEach(i-> {
+			dkgPoints.get(i).setFinalSecret1(secret1s.get(i));
+			dkgPoints.get(i).setFinalSecret2(secret2s.get(i));
+			dkgPoints.get(i).setFinalPublicVal(publicVals.get(i));
+		});
+		publicVal = publicVals.get(0);
+		message = new BigInteger("203213123");
+		label = new BigInteger("30");
+		ciphertext = factory.encrypt(message, label, publicVal);
+	}
+
+	static GroupParams group(String name) {
+		switch(name) {
+		case "modp1024":
+			return GroupParams.modp1024();
+		case "modp2048":
+			return GroupParams.modp2048();
+		case "modp3072":
+			return GroupParams.modp3072();
+		case "secp256k1":
+			return GroupParams.secp256k1();
+		default:
+			throw new IllegalArgumentException("unsupported group "+name);
+		}
+	}
+}
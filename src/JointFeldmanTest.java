@@ -1,3 +1,4 @@
+import dkg.GroupParams;
 import dkg.JointFeldman;
 import java.util.function.Supplier;
 import java.util.List;
@@ -8,10 +9,9 @@ import java.util.stream.Stream;
 
 
 public class JointFeldmanTest {
-	private static int g = 42;
-	private static BigInteger p = BigInteger.valueOf(65537);
-	private static int lowerBound = 10;
-	private static int upperBound = 10000;
+	private static GroupParams params = GroupParams.of(BigInteger.valueOf(65543), BigInteger.valueOf(32771), BigInteger.valueOf(4), BigInteger.valueOf(9));
+	private static BigInteger p = params.getP();
+	private static BigInteger q = params.getQ();
 	
 
 	public static void main(String[] args) {
@@ -37,7 +37,7 @@ public class JointFeldmanTest {
 			System.exit(-1);
 		}
 		
-		Supplier<JointFeldman> dkgSupplier = JointFeldman.getSupplier(g, t, n, p, lowerBound, upperBound);
+		Supplier<JointFeldman> dkgSupplier = JointFeldman.getSupplier(params, t, n);
 		
 		// host dkg, receive n-1 dkgs from sub network
 		JointFeldman hostDkg = dkgSupplier.get();
@@ -51,7 +51,7 @@ public class JointFeldmanTest {
 		List<Integer> qual = IntStream.range(0,subDkgs.size())
 						 .boxed()
 						 .parallel()
-						 .filter(j-> !hostDkg.verifyPublicVals(j, subDkgs.get(j).shares.get(hostIndex), subDkgs.get(j).publicVals))
+						 .filter(j-> hostDkg.verifyPublicVals(hostIndex+1, subDkgs.get(j).shares.get(hostIndex), subDkgs.get(j).publicVals))
 						 .limit(t)
 						 .collect(Collectors.toList());
 		
@@ -78,7 +78,7 @@ public class JointFeldmanTest {
 		
 		BigInteger finalSecret = qual.parallelStream()
 									 .map(i->subDkgs.get(i).shares.get(hostIndex))
-									 .reduce((a,b)-> a.add(b))
+									 .reduce((a,b)-> a.add(b).mod(q))
 									 .get();
 		
 		// calculate new f
@@ -0,0 +1,65 @@
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import dkg.GroupParams;
+import dkg.PerdersonVss;
+import dkg.PerdersonVssFactory;
+import dkg.net.DkgNode;
+import dkg.net.LoopbackTransport;
+import dkg.net.NioTransport;
+import dkg.net.Transport;
+
+// usage: NodePoint t n [nio base-port]; runs n nodes in this JVM and reports end-to-end latency
+public class NodePoint {
+	private static final GroupParams params = GroupParams.modp1024();
+
+	public static void main(String[] args) throws Exception {
+		int t = args.length>1 ? Integer.parseInt(args[0]) : 5;
+		int n = args.length>1 ? Integer.parseInt(args[1]) : 10;
+
+		List<Transport> transports;
+		if(args.length>3 && args[2].equals("nio")) {
+			int basePort = Integer.parseInt(args[3]);
+			List<InetSocketAddress> peers = IntStream.range(0,n)
+					.mapToObj(i-> new InetSocketAddress("127.0.0.1", basePort+i))
+					.collect(Collectors.toList());
+			transports = IntStream.range(0,n)
+					.mapToObj(i-> (Transport)new NioTransport(i, peers))
+					.collect(Collectors.toList());
+		} else {
+			transports = LoopbackTransport.network(n);
+		}
+
+		PerdersonVssFactory factory = new PerdersonVssFactory(params, t, n);
+		List<DkgNode> nodes = transports.stream()
+				.map(transport-> new DkgNode(transport, factory))
+				.collect(Collectors.toList());
+		List<CompletableFuture<DkgNode.Result>> running = new ArrayList<>();
+		for(DkgNode node: nodes) {
+			running.add(node.start());
+		}
+		List<DkgNode.Result> results = running.stream()
+				.map(CompletableFuture::join)
+				.collect(Collectors.toList());
+		for(Transport transport: transports) {
+			transport.close();
+		}
+
+		System.out.println("qual: "+results.get(0).qual);
+		System.out.println("max latency: "+results.stream().mapToLong(r-> r.nanos).max().getAsLong()/1000000+"ms");
+
+		List<PerdersonVss> dkgPoints = nodes.stream().map(DkgNode::dealer).collect(Collectors.toList());
+		BigInteger m = new BigInteger("203213123");
+		List<BigInteger> ciphertext = factory.encrypt(m, BigInteger.valueOf(30), results.get(0).publicVal);
+		if(factory.decrypt(ciphertext, dkgPoints, results.get(0).qual).equals(m)) {
+			System.out.println("encry decrpt works");
+		} else {
+			System.out.println("encry decrpt not works");
+		}
+	}
+}
@@ -1,30 +1,29 @@
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import java.security.MessageDigest;
 
+import dkg.GroupParams;
 import dkg.PerdersonVss;
 import dkg.PerdersonVssFactory;
 
 public class PvssPoint {
-	private static final BigInteger g = new BigInteger("2");
-	private static final BigInteger h = new BigInteger("3");
-	private static final BigInteger p = new BigInteger("157754757658850164039820501368692494984638811981595753785726084071390339342949827166074468203116945260071420591948184266427919389750857419939387549499186051557325946160152109714671771886387784860670680481921786590260608186162263954672484772147274284399498187140357851764561666898851637006570752518678867635307");
-	private static final int lowerBound = 10;
-	private static final int upperBound = 10000;
 	
+	// usage: PvssPoint [secp256k1]
 	public static void main(String[] args) {
+				GroupParams params = args.length>0 && args[0].equals("secp256k1") ? GroupParams.secp256k1() : GroupParams.modp1024();
 
 				int t = 5;
 				int n = 10;
 				BigInteger m = new BigInteger("203213123");
 				BigInteger L = new BigInteger("30");
 				
-				PerdersonVssFactory dkgSupplier = new PerdersonVssFactory(g, h, t, n, p, lowerBound, upperBound);
+				PerdersonVssFactory dkgSupplier = new PerdersonVssFactory(params, t, n);
 				List<PerdersonVss> dkgPoints = Stream.generate(dkgSupplier)
 						.limit(n)
 						.collect(Collectors.toList());
@@ -32,7 +31,11 @@ public class PvssPoint {
 				List< List<Integer> > quals =  dkgSupplier.calCollectedQuals(dkgPoints);
 				List<BigInteger>  secret1s = dkgSupplier.calCollectedSecret1(quals, dkgPoints);
 				List<BigInteger> secret2s = dkgSupplier.calCollectedSecret2(quals, dkgPoints);
-				List<BigInteger> publicVals = dkgSupplier.calCollectedPublicVal(quals, dkgPoints);
+				// dealers whose g commitments do not match their shares get g^a0 reconstructed
+				List<Integer> toConstruct = dkgSupplier.calCollectedToConstruct(quals.get(0), dkgPoints);
+				System.out.println("to be constructed: "+toConstruct);
+				Map<Integer, BigInteger> reconstructed = dkgSupplier.reconstruct(toConstruct, dkgPoints);
+				List<BigInteger> publicVals = dkgSupplier.calCollectedPublicVal(quals, dkgPoints, reconstructed);
 
 				
 				IntStream.range(0, dkgPoints.size())
@@ -0,0 +1,28 @@
+import dkg.GroupParams;
+import dkg.PerdersonVssFactory;
+import dkg.sim.Simulation;
+
+// usage: SimPoint t n [latency-ms [jitter-ms]] [secp256k1]; one virtual thread per participant on Java 21+
+public class SimPoint {
+
+	public static void main(String[] args) throws Exception {
+		boolean curve = args.length>0 && args[args.length-1].equals("secp256k1");
+		int numbers = curve ? args.length-1 : args.length;
+		int t = numbers>1 ? Integer.parseInt(args[0]) : 5;
+		int n = numbers>1 ? Integer.parseInt(args[1]) : 100;
+		long latency = numbers>2 ? Long.parseLong(args[2])*1000000 : 0;
+		long jitter = numbers>3 ? Long.parseLong(args[3])*1000000 : 0;
+		GroupParams params = curve ? GroupParams.secp256k1() : GroupParams.modp1024();
+
+		if(!Simulation.virtualThreads()) {
+			System.err.println("warning: no virtual threads on Java "+Runtime.version().feature()
+					+", every participant gets a platform thread; use Java 21+ for large n");
+		}
+
+		PerdersonVssFactory factory = new PerdersonVssFactory(params, t, n);
+		// every participant reads one share per dealer
+		factory.setLeanDealers(true);
+		Simulation.Report report = new Simulation(factory, n, latency, jitter).run();
+		System.out.print(report);
+	}
+}
@@ -0,0 +1,243 @@
+package dkg;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import dkg.exception.DkgException;
+import dkg.exception.InvalidCiphertextException;
+import dkg.exception.RequestRejectedException;
+import dkg.metrics.Phase;
+
+/**
+ * Long-lived threshold decryption over a fixed set of key shares. Requests from any
+ * number of threads go into a bounded queue; one coalescing thread takes whatever
+ * has queued up, at most maxBatch requests, and decrypts them as one batch so that
+ * the decryption share proofs of all of them are verified together. While a batch
+ * runs the next one queues up, so batches grow with the load by themselves; a
+ * linger delay can make them larger at low load at the cost of latency.
+ *
+ * Failures are typed and never end the process: an invalid ciphertext fails its own
+ * request with an InvalidCiphertextException, a malformed one before it is queued;
+ * an invalid decryption share fails the batch with an
+ * InvalidDecryptionShareException, and a full queue or a closed service rejects
+ * with a RequestRejectedException.
+ */
+public final class DecryptionService implements AutoCloseable {
+	public static final int DEFAULT_MAX_BATCH = 32;
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+	private static final AtomicInteger services = new AtomicInteger();
+	private static final long IDLE_POLL_MILLIS = 100;
+
+	private static final class Request {
+		final List<BigInteger> ciphertext;
+		final CompletableFuture<BigInteger> result = new CompletableFuture<>();
+
+		Request(List<BigInteger> ciphertext) {
+			this.ciphertext = ciphertext;
+		}
+	}
+
+	private final PerdersonVssFactory factory;
+	private final List<BigInteger> secrets;
+	private final List<BigInteger> verificationKeys;
+	private final List<Integer> qual;
+	private final int maxBatch;
+	private final long lingerNanos;
+	private final ArrayBlockingQueue<Request> queue;
+	private final Thread coalescer;
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder decrypted = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private volatile boolean closed;
+
+	// keyShares.get(i) is participant i's share
+	public DecryptionService(PerdersonVssFactory factory, List<KeyShare> keyShares) {
+		this(factory, keyShares, DEFAULT_MAX_BATCH, DEFAULT_QUEUE_CAPACITY, Duration.ZERO);
+	}
+
+	public DecryptionService(PerdersonVssFactory factory, List<KeyShare> keyShares, int maxBatch, int queueCapacity,
+			Duration linger) {
+		if(maxBatch<1 || queueCapacity<1) {
+			throw new IllegalArgumentException("batch size and queue capacity must be positive");
+		}
+		this.factory = factory;
+		this.qual = PerdersonVssFactory.qual(keyShares);
+		this.secrets = List.copyOf(PerdersonVssFactory.secrets1(keyShares));
+		this.verificationKeys = List.copyOf(factory.verificationKeys(secrets));
+		this.maxBatch = maxBatch;
+		this.lingerNanos = linger.toNanos();
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.coalescer = new Thread(this::run, "dkg-decryption-"+services.incrementAndGet());
+		coalescer.setDaemon(true);
+		coalescer.start();
+	}
+
+	// an in-process participant set, dealers with their final secrets set
+	public static DecryptionService local(PerdersonVssFactory factory, List<PerdersonVss> dkgPoints, List<Integer> qual) {
+		return new DecryptionService(factory, IntStream.range(0,dkgPoints.size())
+				.mapToObj(i-> KeyShare.of(dkgPoints.get(i), i, qual))
+				.collect(Collectors.toList()));
+	}
+
+	// completes exceptionally right away when the ciphertext is malformed, the queue is full or the service closed
+	public CompletableFuture<BigInteger> submit(List<BigInteger> ciphertext) {
+		Request request = new Request(ciphertext);
+		if(!factory.wellFormed(ciphertext)) {
+			fail(request, new InvalidCiphertextException("ciphertext is malformed"));
+		} else if(closed) {
+			request.result.completeExceptionally(new RequestRejectedException("decryption service closed"));
+		} else if(!queue.offer(request)) {
+			request.result.completeExceptionally(new RequestRejectedException("decryption queue full"));
+		} else if(closed) {
+			// raced with close, which may have drained the queue already
+			failQueued();
+		}
+		return request.result;
+	}
+
+	// waits for room in the queue and then for the plaintext; gives up once the service closes
+	public BigInteger decrypt(List<BigInteger> ciphertext) throws InterruptedException {
+		if(!factory.wellFormed(ciphertext)) {
+			failed.increment();
+			throw new InvalidCiphertextException("ciphertext is malformed");
+		}
+		Request request = new Request(ciphertext);
+		do {
+			if(closed) {
+				throw new RequestRejectedException("decryption service closed");
+			}
+		} while(!queue.offer(request, IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS));
+		if(closed) {
+			failQueued();
+		}
+		try {
+			return request.result.join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof DkgException) {
+				throw (DkgException)e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private void run() {
+		List<Request> batch = new ArrayList<>(maxBatch);
+		while(!closed) {
+			try {
+				Request first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if(first==null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, maxBatch-1);
+				long deadline = System.nanoTime()+lingerNanos;
+				while(batch.size()<maxBatch && lingerNanos>0) {
+					Request next = queue.poll(deadline-System.nanoTime(), TimeUnit.NANOSECONDS);
+					if(next==null) {
+						break;
+					}
+					batch.add(next);
+					queue.drainTo(batch, maxBatch-batch.size());
+				}
+				process(batch);
+			} catch(InterruptedException e) {
+				break;
+			} finally {
+				batch.forEach(request-> request.result.completeExceptionally(
+						new RequestRejectedException("decryption service closed")));
+				batch.clear();
+			}
+		}
+		failQueued();
+	}
+
+	private void process(List<Request> batch) {
+		List<List<BigInteger>> ciphertexts = batch.stream()
+				.map(request-> request.ciphertext)
+				.collect(Collectors.toList());
+		List<Request> valid = new ArrayList<>(batch.size());
+		try {
+			List<Integer> invalid = factory.invalidCiphertexts(ciphertexts);
+			for(int k=0, next=0; k<batch.size(); k++) {
+				if(next<invalid.size() && invalid.get(next)==k) {
+					next++;
+					fail(batch.get(k), new InvalidCiphertextException("ciphertext is not right"));
+				} else {
+					valid.add(batch.get(k));
+				}
+			}
+			if(!valid.isEmpty()) {
+				List<BigInteger> plaintexts = factory.getMetrics().time(Phase.DECRYPT, ()-> factory.decryptVerified(
+						valid.stream().map(request-> request.ciphertext).collect(Collectors.toList()),
+						secrets, verificationKeys, qual));
+				// counted first, so a caller holding its result sees it in the counters
+				decrypted.add(valid.size());
+				for(int k=0; k<valid.size(); k++) {
+					valid.get(k).result.complete(plaintexts.get(k));
+				}
+			}
+		} catch(DkgException e) {
+			batch.forEach(request-> fail(request, e));
+		} catch(RuntimeException e) {
+			batch.forEach(request-> fail(request, new DkgException("decryption failed", e)));
+		}
+		batches.increment();
+	}
+
+	// only the thread owning the request completes it, apart from rejections on close
+	private void fail(Request request, DkgException e) {
+		if(!request.result.isDone()) {
+			failed.increment();
+			request.result.completeExceptionally(e);
+		}
+	}
+
+	private void failQueued() {
+		Request request;
+		while((request = queue.poll())!=null) {
+			request.result.completeExceptionally(new RequestRejectedException("decryption service closed"));
+		}
+	}
+
+	public int queued() {
+		return queue.size();
+	}
+
+	public long batches() {
+		return batches.sum();
+	}
+
+	public long decrypted() {
+		return decrypted.sum();
+	}
+
+	public long failed() {
+		return failed.sum();
+	}
+
+	// requests still queued fail with a RequestRejectedException; the running batch completes
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			coalescer.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DecryptionService[queued="+queued()+", batches="+batches()+", decrypted="+decrypted()+", failed="+failed()+"]";
+	}
+}
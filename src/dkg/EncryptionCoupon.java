@@ -0,0 +1,47 @@
+package dkg;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The message-independent part of one encryption under publicVal: nonces r and s
+ * with u = g^r, w = g^s, _u = h^r, _w = h^s and publicVal^r. A coupon is good for
+ * exactly one ciphertext, since two ciphertexts sharing r and s give away r.
+ */
+public final class EncryptionCoupon {
+	final BigInteger publicVal;
+	final BigInteger r;
+	final BigInteger s;
+	final BigInteger u;
+	final BigInteger w;
+	final BigInteger _u;
+	final BigInteger _w;
+	final BigInteger publicValPowR;
+	private final AtomicBoolean used = new AtomicBoolean();
+
+	EncryptionCoupon(BigInteger publicVal, BigInteger r, BigInteger s, BigInteger u, BigInteger w,
+			BigInteger _u, BigInteger _w, BigInteger publicValPowR) {
+		this.publicVal = publicVal;
+		this.r = r;
+		this.s = s;
+		this.u = u;
+		this.w = w;
+		this._u = _u;
+		this._w = _w;
+		this.publicValPowR = publicValPowR;
+	}
+
+	public BigInteger publicVal() {
+		return publicVal;
+	}
+
+	public boolean isUsed() {
+		return used.get();
+	}
+
+	void use() {
+		if(!used.compareAndSet(false, true)) {
+			throw new IllegalStateException("encryption coupon already used");
+		}
+	}
+}
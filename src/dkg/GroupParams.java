@@ -0,0 +1,150 @@
+package dkg;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameterGenerator;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.spec.DSAGenParameterSpec;
+import java.security.spec.DSAParameterSpec;
+
+import dkg.group.EcGroup;
+import dkg.group.Group;
+import dkg.group.ModPGroup;
+
+/**
+ * Prime-order group with two generators g, h. Scalars (coefficients, shares,
+ * secrets) live mod q, group elements (commitments, public values, ciphertext
+ * parts) are handled by {@link #getGroup()}. For the subgroup of Z_p^* q | p-1
+ * and elements are residues mod p; for a curve p is the prime of its base field.
+ */
+public final class GroupParams {
+	private static final int CERTAINTY = 64;
+	private static final BigInteger MODP_1024_P = new BigInteger("159570402605637113814769682194834482539588657962463433998236163713959917732602642510831876818403830553982896793286164112335691221044840262694868708761313502501834297097797703986432278496361834904256866305360597494325086403495838350114306960742624268705059605783557155781449093361066399624616925105116120179849");
+	private static final BigInteger MODP_1024_Q = new BigInteger("967780505849624896400498367404139100963085010511");
+	private static final BigInteger MODP_1024_G = new BigInteger("122995233934633332913789490663990578954452140494555610049683075136525781311345205654058687635219477404708988724675753215271168053519626374306722503938785149902457823436159834507690818101375254163499751284667222472199016320381225938563718303907431263158805064358745155541499183268151754908127417012280641524433");
+	// OpenJDK's precomputed DSA parameters (sun.security.provider.ParameterCache), 2048/224 and 3072/256
+	private static final BigInteger MODP_2048_P = new BigInteger("18111848663142005571178770624881214696591339256823507023544605891411707081617152319519180201250440615163700426054396403795303435564101919053459832890139496933938670005799610981765220283775567361483662648340339405220348871308593627647076689407931875483406244310337925809427432681864623551598136302441690546585427193224254314088256212718983105131138772434658820375111735710449331518776858786793875865418124429269409118756812841019074631004956409706877081612616347900606555802111224022921017725537417047242635829949739109274666495826205002104010355456981211025738812433088757102520562459649777989718122219159982614304359");
+	private static final BigInteger MODP_2048_Q = new BigInteger("19689526866605154788513693571065914024068069442724893395618704484701");
+	private static final BigInteger MODP_2048_G = new BigInteger("2859278237642201956931085611015389087970918161297522023542900348087718063098423976428252369340967506010054236052095950169272612831491902295835660747775572934757474194739347115870723217560530672532404847508798651915566434553729839971841903983916294692452760249019857108409189016993380919900231322610083060784269299257074905043636029708121288037909739559605347853174853410208334242027740275688698461842637641566056165699733710043802697192696426360843173620679214131951400148855611740858610821913573088059404459364892373027492936037789337011875710759208498486908611261954026964574111219599568903257472567764789616958430");
+	private static final BigInteger MODP_3072_P = new BigInteger("5324247702829575071675584424464753650392218653107256019844446848108111137442099610337859570555455698143292150721782644697379277011685799642486182126710157502727956703128754514558486334553566476108025376826305819777935803921489384958010396430272101680552342430895462908688531090113078723031928708629285229107140479737510796870634897049041653191187544146563185291995965490522694028755541591759570587784405584216735755028849094405105671910720507385847271205241745578838830570550531235832876196211389164931037470928703345364680618501202641532416176455579713697193616545908678078972847152998443205107778301587260990431581862325745419348472349271905582726545048997572791977411367331277268569955840556518571577037301445271741754306939038630660523878719644605078896473581519115501492972021349181081855817320631731169233237224542755144713990566794971663813152912381666786370580420476874050235609676577291970102822965121019243318222397");
+	private static final BigInteger MODP_3072_Q = new BigInteger("89075016203050440772376920075782220143079934855896740921457815099167207156753");
+	private static final BigInteger MODP_3072_G = new BigInteger("1518176067743766238908245104312479914183897157792252505087387805267259465623833442952503509887718439886779091406114737782086770981460230004083941590851309294609165100019336367111471556142619132810248816296057467425557048178587646688339158629170065988385412759975775796099782974211119619358160271964838400987533469702278217153420005827117927480608567268968968045437802178698806544976036058972087241131597465103574512333938652940435432492276568819454459113948364879735656557806211254716201023654177012229427007885919923189259809596570315789427779205892866160508513481094716360812843091449530917341529136094464117826609945032658737907968289743006934961759766871693809969282852881776820586461871081566430419848497232728408331085732980066000219483895827964331129475156547339011377450002703500914081829054391142227891798308772536119469868884619317923572805527214432547791961969335890187096923012512501696092496018174795480503442737");
+	private static GroupParams modp1024;
+	private static GroupParams modp2048;
+	private static GroupParams modp3072;
+	private static GroupParams secp256k1;
+
+	private final Group group;
+	private final BigInteger p;
+	private final BigInteger q;
+	private final BigInteger g;
+	private final BigInteger h;
+
+	private GroupParams(Group group, BigInteger p, BigInteger q, BigInteger g, BigInteger h) {
+		this.group = group;
+		this.p = p;
+		this.q = q;
+		this.g = g;
+		this.h = h;
+	}
+
+	public static GroupParams of(BigInteger p, BigInteger q, BigInteger g, BigInteger h) {
+		if(!p.isProbablePrime(CERTAINTY)) {
+			throw new IllegalArgumentException("p is not prime");
+		}
+		if(!q.isProbablePrime(CERTAINTY)) {
+			throw new IllegalArgumentException("q is not prime");
+		}
+		if(p.subtract(BigInteger.ONE).mod(q).signum()!=0) {
+			throw new IllegalArgumentException("q does not divide p-1");
+		}
+		checkGenerator("g", g, p, q);
+		checkGenerator("h", h, p, q);
+		if(g.equals(h)) {
+			throw new IllegalArgumentException("g and h must differ");
+		}
+		return new GroupParams(new ModPGroup(p, q), p, q, g, h);
+	}
+
+	// h is hashed into the subgroup from g, so nobody knows log_g(h)
+	public static GroupParams of(BigInteger p, BigInteger q, BigInteger g) {
+		return of(p, q, g, new ModPGroup(p, q).hashToElement(g.toByteArray()));
+	}
+
+	public static synchronized GroupParams modp1024() {
+		if(modp1024==null) {
+			modp1024 = of(MODP_1024_P, MODP_1024_Q, MODP_1024_G);
+		}
+		return modp1024;
+	}
+
+	public static synchronized GroupParams modp2048() {
+		if(modp2048==null) {
+			modp2048 = of(MODP_2048_P, MODP_2048_Q, MODP_2048_G);
+		}
+		return modp2048;
+	}
+
+	public static synchronized GroupParams modp3072() {
+		if(modp3072==null) {
+			modp3072 = of(MODP_3072_P, MODP_3072_Q, MODP_3072_G);
+		}
+		return modp3072;
+	}
+
+	// h is hashed onto the curve from the encoding of the generator
+	public static synchronized GroupParams secp256k1() {
+		if(secp256k1==null) {
+			EcGroup curve = EcGroup.secp256k1();
+			BigInteger g = curve.generator();
+			secp256k1 = new GroupParams(curve, curve.fieldPrime(), curve.order(), g, curve.hashToElement(curve.encode(g)));
+		}
+		return secp256k1;
+	}
+
+	// DSA-style parameters, e.g. (1024,160), (2048,224), (2048,256), (3072,256)
+	public static GroupParams generate(int pBits, int qBits, SecureRandom random) {
+		try {
+			AlgorithmParameterGenerator generator = AlgorithmParameterGenerator.getInstance("DSA");
+			generator.init(new DSAGenParameterSpec(pBits, qBits), random);
+			DSAParameterSpec spec = generator.generateParameters().getParameterSpec(DSAParameterSpec.class);
+			return of(spec.getP(), spec.getQ(), spec.getG());
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("cannot generate "+pBits+"/"+qBits+" bit parameters", e);
+		}
+	}
+
+	private static void checkGenerator(String name, BigInteger x, BigInteger p, BigInteger q) {
+		if(x.compareTo(BigInteger.ONE)<=0 || x.compareTo(p)>=0) {
+			throw new IllegalArgumentException(name+" out of range");
+		}
+		if(!x.modPow(q, p).equals(BigInteger.ONE)) {
+			throw new IllegalArgumentException(name+" is not in the subgroup of order q");
+		}
+	}
+
+	public Group getGroup() {
+		return group;
+	}
+
+	public BigInteger getP() {
+		return p;
+	}
+
+	public BigInteger getQ() {
+		return q;
+	}
+
+	public BigInteger getG() {
+		return g;
+	}
+
+	public BigInteger getH() {
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return "GroupParams["+group+"]";
+	}
+}
@@ -1,65 +1,96 @@
 package dkg;
 import java.util.List;
 import java.math.BigInteger;
-import java.util.Random;
 import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import dkg.crypto.Drbg;
+import dkg.crypto.DrbgSource;
+import dkg.exec.DkgScheduler;
+import dkg.group.Group;
+import dkg.math.Polynomial;
+import dkg.metrics.DkgMetrics;
+import dkg.metrics.Phase;
+
 class JointFeldmanFactory implements Supplier<JointFeldman> {
 	
-	private final int g;
+	private final GroupParams params;
 	private final int t;
 	private final int n;
-	private final BigInteger p;
-	private final int lowerBound;
-	private final int upperBound;
+	private final DkgMetrics metrics;
+	private final DrbgSource randomness;
+	private final DkgScheduler scheduler;
+	private final AtomicLong dealt = new AtomicLong();
 	public Function<BigInteger, BigInteger> func;
-	private static final Random random = new Random();
 	
-	public JointFeldmanFactory(int g,int t,int n, BigInteger p, int lowerBound, int upperBound) {
-		this.g = g;
+	public JointFeldmanFactory(GroupParams params,int t,int n, DkgMetrics metrics, DrbgSource randomness,
+			DkgScheduler scheduler) {
+		this.params = params;
 		this.t = t;
 		this.n = n;
-		this.p = p;
-		this.lowerBound = lowerBound;
-		this.upperBound = upperBound;
+		this.metrics = metrics;
+		this.randomness = randomness;
+		this.scheduler = scheduler;
 	}
 	
-	private List<Integer> genParas() {
-		return random.ints(n,lowerBound,upperBound)
-			  .parallel()
-			  .boxed()
+	private List<BigInteger> genParas(Drbg drbg) {
+		return IntStream.range(0,t)
+			  .mapToObj(i-> drbg.nextScalar(params.getQ()))
 			  .collect(Collectors.toList());
 	}
 	
 	public JointFeldman get() {
-		List<Integer> paras = genParas();
-		return new JointFeldman(paras,g,t,n,p);
+		List<BigInteger> paras = genParas(randomness.stream(dealt.getAndIncrement()));
+		return new JointFeldman(paras,params,t,n,metrics,scheduler);
 	}
 }
 
 public class JointFeldman {
-	private final int g;
+	private final BigInteger g;
 	private final int t;
 	private final int n;
-	private final BigInteger p;
+	private final BigInteger q;
+	private final Group group;
 	public final List<BigInteger> shares;
 	public final List<BigInteger> publicVals;
 	private List<BigInteger> finalShares;
 	private BigInteger finalSecret;
 	public final Function<BigInteger,BigInteger>f;
 	private BigInteger finalPublicVal;
+	private final DkgMetrics metrics;
+	private final DkgScheduler scheduler;
+	
+	public JointFeldman(List<BigInteger> paras, GroupParams params, int t, int n) {
+		this(paras, params, t, n, DkgMetrics.jfr());
+	}
+	
+	public JointFeldman(List<BigInteger> paras, GroupParams params, int t, int n, DkgMetrics metrics) {
+		this(paras, params, t, n, metrics, DkgScheduler.shared());
+	}
 	
-	public JointFeldman(List<Integer> paras, int g, int t, int n, BigInteger p) {
+	// scheduler runs the share evaluation and the commitment exponentiations
+	public JointFeldman(List<BigInteger> paras, GroupParams params, int t, int n, DkgMetrics metrics,
+			DkgScheduler scheduler) {
+		if(paras.size()!=t) {
+			throw new IllegalArgumentException("a degree t-1 polynomial needs t coefficients");
+		}
+		long start = System.nanoTime();
+		this.metrics = metrics;
+		this.scheduler = scheduler;
 		this.t = t;
-		this.p = p;
-		this.g = g;
+		this.q = params.getQ();
+		this.group = params.getGroup();
+		this.g = params.getG();
 		this.n = n;
-		this.f = (BigInteger z)-> func(paras,z);
-		this.shares = computeShares();
+		Polynomial poly = new Polynomial(paras, q);
+		this.f = poly;
+		this.shares = poly.evaluateRange(n, scheduler);
 		this.publicVals = computePublicVals(paras);
+		metrics.modPow(t);
+		metrics.phaseCompleted(Phase.DEALING, System.nanoTime()-start);
 	}
 	
 	public synchronized void setFinalShares(List<BigInteger> finalShares) {
@@ -86,68 +117,60 @@ public class JointFeldman {
 		return new BigInteger(finalSecret.toByteArray());
 	}
 	
-	private Function<BigInteger,BigInteger> bindPowMod (final BigInteger base) {
-		return (i) -> base.modPow(i,p);
-	}
-	
 	private Function<Integer,BigInteger> bindPow (final BigInteger base) {
-		return (i) -> base.pow(i);
-	}
-	
-	private BigInteger func(List<Integer>paras, final BigInteger z) {
-		Function<BigInteger,BigInteger> zPow = bindPowMod(z);
-		return IntStream.range(0,paras.size())
-				 .boxed()
-				 .parallel()
-				 .map(i-> BigInteger.valueOf(paras.get(i)).multiply(zPow.apply(BigInteger.valueOf(i))))
-				 .reduce((a,b)-> a.add(b))
-				 .get();
+		return (i) -> base.modPow(BigInteger.valueOf(i),q);
 	}
 	
-	private List<BigInteger> computeShares() {
-		return IntStream.rangeClosed(1,n)
-				 .boxed()
-				 .parallel()
-				 .map(i->f.apply(BigInteger.valueOf(i)))
-				 .collect(Collectors.toList());
-	}
-	
-	private List<BigInteger> computePublicVals(List<Integer> paras) {
-		Function<Integer,BigInteger> gPow = bindPow(BigInteger.valueOf(g));
+	private List<BigInteger> computePublicVals(List<BigInteger> paras) {
+		Function<BigInteger,BigInteger> gPow = group.fixedBase(g);
 		
-		return IntStream.range(0,t)
-				 .boxed()
-				 .parallel()
-				 .map(i-> gPow.apply(paras.get(i).intValue()))
-				 .collect(Collectors.toList());
+		return scheduler.map(t, t, i-> gPow.apply(paras.get(i)));
 	}
 	
 	public boolean verifyPublicVals(int j, BigInteger shareJ, List<BigInteger> publicVals) {
 		// check range
-		if(j>n) {
-			System.out.println("target out of range");
+		if(j<1 || j>n) {
+			metrics.verificationFailed(Phase.QUAL, -1, j-1, "target out of range");
 			return false;
 		}
 		if(publicVals.size()!=t) {
-			System.out.println("public vals is less than t");
+			metrics.verificationFailed(Phase.QUAL, -1, j-1, "public vals is less than t");
 			return false;
 		}
 		
-		BigInteger gShare = bindPowMod(BigInteger.valueOf(g))
-										.apply(shareJ);
+		BigInteger gShare = group.fixedBase(g)
+								 .apply(shareJ);
 		
 		Function<Integer,BigInteger> targetPow = bindPow(BigInteger.valueOf(j));
-		BigInteger combindedVals = IntStream.range(0,t)
-									 		 .boxed()
-									 		 .parallel()
-									 		 .map(i->bindPowMod(publicVals.get(i)).apply(targetPow.apply(i)))
-									 		 .reduce((a,b)->a.multiply(b))
-									 		 .get();
+		BigInteger combindedVals = group.multiExp(publicVals,
+									 		 IntStream.range(0,t)
+									 		 		  .boxed()
+									 		 		  .map(targetPow)
+									 		 		  .collect(Collectors.toList()));
 		
-		return gShare.equals(combindedVals);
+		metrics.modPow(1+t);
+		if(!gShare.equals(combindedVals)) {
+			metrics.verificationFailed(Phase.QUAL, -1, j-1, "share does not match public vals");
+			return false;
+		}
+		return true;
+	}
+	
+	public static Supplier<JointFeldman> getSupplier(GroupParams params, int t, int n) {
+		return getSupplier(params,t,n,DkgMetrics.jfr());
+	}
+	
+	public static Supplier<JointFeldman> getSupplier(GroupParams params, int t, int n, DkgMetrics metrics) {
+		return getSupplier(params,t,n,metrics,DrbgSource.fromEntropy());
+	}
+	
+	// a seeded source gives the same dealers for the same seed, in the order they are requested
+	public static Supplier<JointFeldman> getSupplier(GroupParams params, int t, int n, DkgMetrics metrics, DrbgSource randomness) {
+		return getSupplier(params,t,n,metrics,randomness,DkgScheduler.shared());
 	}
 	
-	public static Supplier<JointFeldman> getSupplier(int g, int t, int n, BigInteger p,int lowerBound, int upperBound) {
-		return new JointFeldmanFactory(g,t,n,p,lowerBound,upperBound);
+	public static Supplier<JointFeldman> getSupplier(GroupParams params, int t, int n, DkgMetrics metrics, DrbgSource randomness,
+			DkgScheduler scheduler) {
+		return new JointFeldmanFactory(params,t,n,metrics,randomness,scheduler);
 	}
 }
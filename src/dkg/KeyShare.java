@@ -0,0 +1,48 @@
+package dkg;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Key material a participant keeps after a completed run: its shares of the two
+ * joint secrets, the joint public value and the QUAL set they were summed over.
+ * index is the participant's host index, 0..n-1.
+ */
+public final class KeyShare {
+	public final int index;
+	public final BigInteger secret1;
+	public final BigInteger secret2;
+	public final BigInteger publicVal;
+	public final List<Integer> qual;
+
+	public KeyShare(int index, BigInteger secret1, BigInteger secret2, BigInteger publicVal, List<Integer> qual) {
+		this.index = index;
+		this.secret1 = secret1;
+		this.secret2 = secret2;
+		this.publicVal = publicVal;
+		this.qual = List.copyOf(qual);
+	}
+
+	// dealer must have its final secrets and public value set
+	public static KeyShare of(PerdersonVss dealer, int index, List<Integer> qual) {
+		return new KeyShare(index, dealer.getFinalSecret1(), dealer.getFinalSecret2(), dealer.finalPublicVal(), qual);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof KeyShare)) {
+			return false;
+		}
+		KeyShare other = (KeyShare)o;
+		return index==other.index
+				&& secret1.equals(other.secret1)
+				&& secret2.equals(other.secret2)
+				&& publicVal.equals(other.publicVal)
+				&& qual.equals(other.qual);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31*index+publicVal.hashCode();
+	}
+}
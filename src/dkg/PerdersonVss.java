@@ -3,45 +3,130 @@ package dkg;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import utils.Utils;
+import dkg.exec.DkgScheduler;
+import dkg.group.Group;
+import dkg.math.Polynomial;
+import dkg.metrics.DkgMetrics;
+import dkg.metrics.Phase;
 
 public class PerdersonVss {
+	private static final int STREAM_CHUNK = 1024;
 	private final BigInteger g;
 	private final BigInteger h;
 	private final int t;
 	private final int n;
-	private final BigInteger p;
+	private final BigInteger q;
+	private final Group group;
+	private final DkgScheduler scheduler;
 	private BigInteger finalSecret1;
 	private BigInteger finalSecret2;
 	private BigInteger finalPublicVal;
 	public final Function<BigInteger,BigInteger>f1;
 	public final Function<BigInteger,BigInteger>f2;
+	private final Polynomial poly1;
+	private final Polynomial poly2;
+	private final boolean lean;
+	private final long dealNanos;
 	public final List<BigInteger> shares1;
 	public final List<BigInteger> shares2;
 	public final List<BigInteger> publicVals1;
 	public final List<BigInteger> publicVals2;
 	public final List<BigInteger> publicVals;
 	
-	public PerdersonVss(List<Integer> paras1,List<Integer> paras2, BigInteger g, BigInteger h,int t, int n, BigInteger p) {
+	public PerdersonVss(List<BigInteger> paras1,List<BigInteger> paras2, GroupParams params,int t, int n) {
+		this(paras1, paras2, params, t, n,
+				new ShareMatrix(1, n, params.getQ().bitLength()),
+				new ShareMatrix(1, n, params.getQ().bitLength()),
+				new ShareMatrix(1, 3*t, params.getGroup().elementBits()),
+				0, 0, DkgMetrics.jfr(), DkgScheduler.shared());
+	}
+	
+	/**
+	 * Shares and commitments go to the given row of matrices shared with other dealers.
+	 * Without share matrices the dealer is lean: it keeps only its coefficients and
+	 * commitments, and shares1 and shares2 evaluate the polynomials on every read.
+	 * A dealer index of -1 leaves reporting dealerCompleted to whoever hands it out.
+	 */
+	PerdersonVss(List<BigInteger> paras1,List<BigInteger> paras2, GroupParams params,int t, int n,
+			ShareMatrix shareMatrix1, ShareMatrix shareMatrix2, ShareMatrix commitmentMatrix, int row,
+			int dealer, DkgMetrics metrics, DkgScheduler scheduler) {
+		if(paras1.size()!=t || paras2.size()!=t) {
+			throw new IllegalArgumentException("a degree t-1 polynomial needs t coefficients");
+		}
+		long start = System.nanoTime();
 		this.t = t;
-		this.p = p;
-		this.g = g;
-		this.h = h;
+		this.q = params.getQ();
+		this.group = params.getGroup();
+		this.g = params.getG();
+		this.h = params.getH();
 		this.n = n;
-		this.f1 = (BigInteger z)-> func(paras1, z);
-		this.f2 = (BigInteger z)-> func(paras2, z);
-		this.shares1 = computeShares(f1);
-		this.shares2 = computeShares(f2);
+		this.scheduler = scheduler;
+		this.poly1 = toPolynomial(paras1);
+		this.poly2 = toPolynomial(paras2);
+		this.f1 = poly1;
+		this.f2 = poly2;
+		this.lean = shareMatrix1==null;
+		if(lean) {
+			this.shares1 = poly1.lazyRange(n);
+			this.shares2 = poly2.lazyRange(n);
+		} else {
+			this.shares1 = fill(shareMatrix1.row(row), poly1.evaluateRange(n, scheduler));
+			this.shares2 = fill(shareMatrix2.row(row), poly2.evaluateRange(n, scheduler));
+		}
+		
+		this.publicVals1 = fill(commitmentMatrix.row(row,0,t), computePublicVals(paras1,g));
+		this.publicVals2 = fill(commitmentMatrix.row(row,t,2*t), computePublicVals(paras2,h));
+		this.publicVals = fill(commitmentMatrix.row(row,2*t,3*t), combineTwoPublicVals());
 		
-		this.publicVals1 = computePublicVals(paras1,g);
-		this.publicVals2 = computePublicVals(paras2,h);
-		this.publicVals = combineTwoPublicVals();
+		long elapsed = System.nanoTime()-start;
+		this.dealNanos = elapsed;
+		metrics.modPow(2*t);
+		if(dealer>=0) {
+			metrics.dealerCompleted(dealer, elapsed);
+		}
+		metrics.phaseCompleted(Phase.DEALING, elapsed);
+	}
+	
+	private static List<BigInteger> fill(List<BigInteger> target, List<BigInteger> values) {
+		for(int i=0; i<values.size(); i++) {
+			target.set(i, values.get(i));
+		}
+		return target;
+	}
+	
+	public boolean isLean() {
+		return lean;
+	}
+	
+	// time taken to build the polynomials, shares and commitments
+	public long dealNanos() {
+		return dealNanos;
+	}
+	
+	// recipient's share pair, recipients being 0-based
+	public BigInteger share1(int recipient) {
+		return shares1.get(recipient);
+	}
+	
+	public BigInteger share2(int recipient) {
+		return shares2.get(recipient);
+	}
+	
+	// every recipient's share pair in recipient order; a lean dealer evaluates them a chunk at a time
+	public void streamShares(ShareSink sink) {
+		for(int from=0; from<n; from+=STREAM_CHUNK) {
+			int to = Math.min(n, from+STREAM_CHUNK);
+			List<BigInteger> chunk1 = lean ? poly1.evaluateRange(from+1, to) : shares1.subList(from, to);
+			List<BigInteger> chunk2 = lean ? poly2.evaluateRange(from+1, to) : shares2.subList(from, to);
+			for(int j=from; j<to; j++) {
+				sink.accept(j, chunk1.get(j-from), chunk2.get(j-from));
+			}
+		}
 	}
 	
 	public synchronized void setFinalSecret1(BigInteger finalSecret) {
@@ -68,48 +153,19 @@ public class PerdersonVss {
 		return new BigInteger(finalPublicVal.toByteArray());
 	}
 	
-	private Function<BigInteger,BigInteger> bindPowMod (final BigInteger base) {
-		return (i) -> base.modPow(i,p);
+	private Polynomial toPolynomial(List<BigInteger> paras) {
+		return new Polynomial(paras, q);
 	}
 	
-	private Function<Integer,BigInteger> bindPow (final BigInteger base) {
-		return (i) -> base.pow(i);
-	}
-
-	
-	private BigInteger func(List<Integer> paras ,final BigInteger z) {
-		Function<BigInteger,BigInteger> zPow = bindPowMod(z);
-		return IntStream.range(0,paras.size())
-				 .boxed()
-				 .parallel()
-				 .map(i-> BigInteger.valueOf(paras.get(i)).multiply(zPow.apply(BigInteger.valueOf(i))))
-				 .reduce((a,b)-> a.add(b))
-				 .get();
-	}
-	
-	private List<BigInteger> computeShares(Function<BigInteger,BigInteger>f) {
-		return IntStream.rangeClosed(1,n)
-				 .boxed()
-				 .parallel()
-				 .map(i->f.apply(BigInteger.valueOf(i)))
-				 .collect(Collectors.toList());
-	}
-	
-	private List<BigInteger> computePublicVals(List<Integer> paras, BigInteger generatorBase) {
-		Function<Integer,BigInteger> gPow = bindPow(generatorBase);
+	private List<BigInteger> computePublicVals(List<BigInteger> paras, BigInteger generatorBase) {
+		Function<BigInteger,BigInteger> gPow = group.fixedBase(generatorBase);
 		
-		return IntStream.range(0,t)
-				 .boxed()
-				 .parallel()
-				 .map(i-> gPow.apply(paras.get(i).intValue()))
-				 .collect(Collectors.toList());
+		return scheduler.map(t, t, i-> gPow.apply(paras.get(i)));
 	}
 	
 	private List<BigInteger> combineTwoPublicVals() {
 		return IntStream.range(0,t)
-					   .boxed()
-					   .parallel()
-					   .map(i-> publicVals1.get(i).multiply(publicVals2.get(i)).mod(p))
+					   .mapToObj(i-> group.mul(publicVals1.get(i), publicVals2.get(i)))
 					   .collect(Collectors.toList());
 	}
 
@@ -1,19 +1,32 @@
 package dkg;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import dkg.crypto.Drbg;
+import dkg.crypto.DrbgSource;
+import dkg.crypto.Transcript;
+import dkg.exception.InvalidCiphertextException;
+import dkg.exception.InvalidDecryptionShareException;
+import dkg.exec.DkgScheduler;
+import dkg.exec.DkgScheduler.Tile;
+import dkg.group.Group;
+import dkg.math.LagrangeCache;
+import dkg.metrics.DkgMetrics;
+import dkg.metrics.Phase;
 
 public class PerdersonVssFactory implements Supplier<PerdersonVss> {
 	
@@ -22,321 +35,883 @@ public class PerdersonVssFactory implements Supplier<PerdersonVss> {
 	private final int n;
 	private final BigInteger h;
 	private final BigInteger p;
-	private final int lowerBound;
-	private final int upperBound;
+	private final BigInteger q;
+	private final Group group;
 	public Function<BigInteger, BigInteger> func;
-	private static final Random random = new Random();
+	private final Function<BigInteger,BigInteger> gPow;
+	private final Function<BigInteger,BigInteger> hPow;
+	private final LagrangeCache lagrange;
+	private volatile boolean batchVerification = true;
+	private volatile boolean leanDealers;
+	private volatile DkgMetrics metrics = DkgMetrics.jfr();
+	private volatile DkgScheduler scheduler = DkgScheduler.shared();
+	private volatile DrbgSource randomness = DrbgSource.fromEntropy();
+	// batch verification needs exponents no dealer can predict, whatever the randomness setting
+	private static final DrbgSource batchRandomness = DrbgSource.fromEntropy();
+	private static final int BATCH_EXPONENT_BITS = 64;
+	private static final String CIPHERTEXT_DOMAIN = "dkg/tdh2/ciphertext";
+	private static final String DECRYPTION_SHARE_DOMAIN = "dkg/tdh2/decryption-share";
+	private static final String MASK_DOMAIN = "dkg/tdh2/mask";
 	
-	public PerdersonVssFactory(BigInteger g, BigInteger h,int t,int n, BigInteger p, int lowerBound, int upperBound) {
-		this.g = g;
-		this.h = h;
+	private final GroupParams params;
+	// dealers handed out by get() fill consecutive rows of the current round's matrices
+	private ShareMatrix roundShares1;
+	private ShareMatrix roundShares2;
+	private ShareMatrix roundCommitments;
+	private int nextRow;
+	private long dealt;
+	
+	public PerdersonVssFactory(GroupParams params,int t,int n) {
+		this.params = params;
+		this.g = params.getG();
+		this.h = params.getH();
 		this.t = t;
 		this.n = n;
-		this.p = p;
-		this.lowerBound = lowerBound;
-		this.upperBound = upperBound;
+		this.p = params.getP();
+		this.q = params.getQ();
+		this.group = params.getGroup();
+		this.gPow = counted(group.fixedBase(g));
+		this.hPow = counted(group.fixedBase(h));
+		this.lagrange = new LagrangeCache(q);
+	}
+	
+	public void setBatchVerification(boolean batchVerification) {
+		this.batchVerification = batchVerification;
+	}
+	
+	/**
+	 * Lean dealers keep only coefficients and commitments; their shares are evaluated
+	 * when read or streamed with {@link PerdersonVss#streamShares}. For large n where
+	 * every share is read about once, e.g. when each goes to one recipient.
+	 */
+	public void setLeanDealers(boolean leanDealers) {
+		this.leanDealers = leanDealers;
+	}
+	
+	public void setMetrics(DkgMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	public DkgMetrics getMetrics() {
+		return metrics;
+	}
+	
+	// runs all parallel work of this factory and of the dealers it creates
+	public void setScheduler(DkgScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+	
+	public DkgScheduler getScheduler() {
+		return scheduler;
 	}
 	
-	private List<Integer> genParas() {
-		return random.ints(n,lowerBound,upperBound)
-			  .parallel()
-			  .boxed()
+	// coefficients and nonces; the k-th dealer handed out by get() draws from stream k
+	public void setRandomness(DrbgSource randomness) {
+		this.randomness = randomness;
+	}
+	
+	public DrbgSource getRandomness() {
+		return randomness;
+	}
+	
+	public int getN() {
+		return n;
+	}
+	
+	public GroupParams getParams() {
+		return params;
+	}
+	
+	private List<BigInteger> genParas(Drbg drbg) {
+		return IntStream.range(0,t)
+			  .mapToObj(i-> drbg.nextScalar(q))
 			  .collect(Collectors.toList());
 	}
 	
 	public PerdersonVss get() {
-		List<Integer> paras1 = genParas();
-		List<Integer> paras2 = genParas();
-		return new PerdersonVss(paras1,paras2,g,h,t,n,p);
+		ShareMatrix shares1, shares2, commitments;
+		int row;
+		long stream;
+		boolean lean = leanDealers;
+		synchronized(this) {
+			if(roundCommitments==null || nextRow==n) {
+				roundShares1 = lean ? null : new ShareMatrix(n, n, q.bitLength());
+				roundShares2 = lean ? null : new ShareMatrix(n, n, q.bitLength());
+				roundCommitments = new ShareMatrix(n, 3*t, group.elementBits());
+				nextRow = 0;
+			} else if(!lean && roundShares1==null) {
+				// switched out of lean mode within a round
+				roundShares1 = new ShareMatrix(n, n, q.bitLength());
+				roundShares2 = new ShareMatrix(n, n, q.bitLength());
+			}
+			shares1 = lean ? null : roundShares1;
+			shares2 = lean ? null : roundShares2;
+			commitments = roundCommitments;
+			row = nextRow++;
+			stream = dealt++;
+		}
+		Drbg drbg = randomness.stream(stream);
+		List<BigInteger> paras1 = genParas(drbg);
+		List<BigInteger> paras2 = genParas(drbg);
+		return new PerdersonVss(paras1,paras2,params,t,n,shares1,shares2,commitments,row,row,metrics,scheduler);
+	}
+	
+	/**
+	 * A dealer with shares and commitments in rows of its own, independent of the
+	 * round get() is filling, so it can be made ahead of time; never lean. Its index
+	 * is not known yet, so dealerCompleted is left to whoever hands it out.
+	 */
+	public PerdersonVss prepare() {
+		long stream;
+		synchronized(this) {
+			stream = dealt++;
+		}
+		Drbg drbg = randomness.stream(stream);
+		List<BigInteger> paras1 = genParas(drbg);
+		List<BigInteger> paras2 = genParas(drbg);
+		return new PerdersonVss(paras1,paras2,params,t,n,
+				new ShareMatrix(1, n, q.bitLength()),
+				new ShareMatrix(1, n, q.bitLength()),
+				new ShareMatrix(1, 3*t, group.elementBits()),
+				0,-1,metrics,scheduler);
+	}
+	
+	private static List<BigInteger> shares1Column(List<PerdersonVss> dkgPoints, int hostIndex) {
+		return ShareMatrix.columnOf(dkgPoints.size(), j-> dkgPoints.get(j).shares1, hostIndex);
+	}
+	
+	private static List<BigInteger> shares2Column(List<PerdersonVss> dkgPoints, int hostIndex) {
+		return ShareMatrix.columnOf(dkgPoints.size(), j-> dkgPoints.get(j).shares2, hostIndex);
 	}
 	
 	public boolean verifyPublicValsFirstStage(int j, BigInteger shareJ1, BigInteger ShareJ2, List<BigInteger> publicVals) {
-		BigInteger gShare = bindPowMod(g).apply(shareJ1);
-		BigInteger hShare = bindPowMod(g).apply(ShareJ2);
-		BigInteger share = gShare.multiply(hShare).mod(p);
+		BigInteger gShare = gPow.apply(shareJ1);
+		BigInteger hShare = hPow.apply(ShareJ2);
+		BigInteger share = group.mul(gShare, hShare);
 		return verifyPublicVals(j, share, publicVals);
 	}
 	
 	public boolean verifyPublicValsFinalStage(int j, BigInteger shareJ, List<BigInteger> publicVals) {
-		BigInteger gShare = bindPowMod(g)
-				.apply(shareJ);
+		BigInteger gShare = gPow.apply(shareJ);
 		
 		return verifyPublicVals(j, gShare,  publicVals);
 	}
 	
 	private Function<BigInteger,BigInteger> bindPowMod (final BigInteger base) {
-		return (i) -> base.modPow(i,p);
+		return counted((i) -> group.pow(base, i));
+	}
+	
+	private Function<BigInteger,BigInteger> counted(Function<BigInteger,BigInteger> pow) {
+		return (i) -> {
+			metrics.modPow(1);
+			return pow.apply(i);
+		};
+	}
+	
+	private BigInteger multiExp(List<BigInteger> bases, List<BigInteger> exponents) {
+		metrics.modPow(bases.size());
+		return group.multiExp(bases, exponents);
 	}
 	
 	private Function<Integer,BigInteger> bindPow (final BigInteger base) {
-		return (i) -> base.pow(i);
+		return (i) -> base.modPow(BigInteger.valueOf(i),q);
 	}
 	
 	private boolean verifyPublicVals(int j, BigInteger share, List<BigInteger> publicVals) {
 		// check range
-		if(j>n) {
-			System.out.println("target out of range");
+		if(j<1 || j>n) {
+			metrics.verificationFailed(Phase.QUAL, -1, j-1, "target out of range");
 			return false;
 		}
 		if(publicVals.size()!=t) {
-			System.out.println("public vals is less than t");
+			metrics.verificationFailed(Phase.QUAL, -1, j-1, "public vals is less than t");
 			return false;
 		}
 		
 		Function<Integer,BigInteger> targetPow = bindPow(BigInteger.valueOf(j));
 		
-		BigInteger combindedVals = IntStream.range(0,t)
-									 		 .boxed()
-									 		 .parallel()
-									 		 .map(i->bindPowMod(publicVals.get(i)).apply(targetPow.apply(i)))
-									 		 .reduce((a,b)->a.multiply(b))
-									 		 .get();
+		BigInteger combindedVals = multiExp(publicVals,
+									 		 IntStream.range(0,t)
+									 		 		  .boxed()
+									 		 		  .map(targetPow)
+									 		 		  .collect(Collectors.toList()));
 		
 		return share.equals(combindedVals);
 	}
 	
 	public List<Integer> calSingleQual(List<PerdersonVss> dkgPoints, int hostIndex) {
-		return IntStream.range(0,dkgPoints.size())
-		 .boxed()
-		 .parallel()
-		 .filter(j-> ! verifyPublicValsFirstStage(j,
-				 dkgPoints.get(j).shares1.get(hostIndex), 
-				 dkgPoints.get(j).shares2.get(hostIndex), 
-				 dkgPoints.get(j).publicVals))
-		 .collect(Collectors.toList());
+		return metrics.time(Phase.QUAL, ()-> singleQual(dkgPoints, hostIndex));
+	}
+	
+	private List<Integer> singleQual(List<PerdersonVss> dkgPoints, int hostIndex) {
+		if(batchVerification) {
+			List<int[]> shares = IntStream.range(0,dkgPoints.size())
+					.mapToObj(j-> new int[] {j,hostIndex})
+					.collect(Collectors.toList());
+			Set<Integer> invalid = findInvalidShares(dkgPoints, shares).stream()
+					.map(share-> share[0])
+					.collect(Collectors.toSet());
+			return IntStream.range(0,dkgPoints.size())
+					.filter(j-> !invalid.contains(j))
+					.boxed()
+					.collect(Collectors.toList());
+		}
+		List<BigInteger> column1 = shares1Column(dkgPoints, hostIndex);
+		List<BigInteger> column2 = shares2Column(dkgPoints, hostIndex);
+		List<Integer> qual = scheduler.filter(t, dkgPoints.size(),
+				j-> verifyPublicValsFirstStage(hostIndex+1,
+						column1.get(j), 
+						column2.get(j), 
+						dkgPoints.get(j).publicVals));
+		IntStream.range(0,dkgPoints.size())
+			.filter(j-> !qual.contains(j))
+			.forEach(j-> metrics.verificationFailed(Phase.QUAL, j, hostIndex, "share does not match commitments"));
+		return qual;
+	}
+	
+	/**
+	 * Streaming alternative to calSingleQual for recipient hostIndex: dealings are
+	 * handed to the pipeline as they arrive, and it is ready once required dealers
+	 * qualified, all are decided or the deadline (null for none) expired.
+	 */
+	public QualPipeline qualPipeline(int hostIndex, int required, Duration deadline) {
+		return new QualPipeline(this, hostIndex, n, required, deadline);
+	}
+	
+	// one dealer's shares for hostIndex, failures are reported like in calSingleQual
+	boolean verifyDealing(int dealer, int hostIndex, BigInteger share1, BigInteger share2, List<BigInteger> publicVals) {
+		boolean valid = verifyPublicValsFirstStage(hostIndex+1, share1, share2, publicVals);
+		if(!valid) {
+			metrics.verificationFailed(Phase.QUAL, dealer, hostIndex, "share does not match commitments");
+		}
+		return valid;
 	}
 	
 	public List<List<Integer>> calCollectedQuals(List<PerdersonVss> dkgPoints) {
-		return IntStream.range(0,dkgPoints.size())
-		.boxed()
-		.parallel()
-		.map(hostIndex-> calSingleQual(dkgPoints, hostIndex))
-		.collect(Collectors.toList());
+		return metrics.time(Phase.QUAL, ()-> collectedQuals(dkgPoints));
+	}
+	
+	// (dealer, recipient) tiles are verified independently; a batch tile spans all dealers
+	// so that each dealer's commitments are still combined over many recipients
+	private List<List<Integer>> collectedQuals(List<PerdersonVss> dkgPoints) {
+		int size = dkgPoints.size();
+		List<Tile> tiles = batchVerification
+				? scheduler.tiles(size, size, size, (size+scheduler.parallelism()-1)/scheduler.parallelism())
+				: scheduler.tiles(size, size);
+		List<int[]> invalid = scheduler.map(t, tiles.size(), k-> batchVerification
+						? findInvalidShares(dkgPoints, tiles.get(k).pairs())
+						: tiles.get(k).pairs().stream()
+								.filter(share-> !verifyShare(dkgPoints, share))
+								.collect(Collectors.toList()))
+				.stream()
+				.flatMap(List::stream)
+				.collect(Collectors.toList());
+		if(!batchVerification) {
+			invalid.forEach(share-> metrics.verificationFailed(Phase.QUAL, share[0], share[1], "share does not match commitments"));
+		}
+		return IntStream.range(0,size)
+				.mapToObj(hostIndex-> {
+					Set<Integer> invalidDealers = invalid.stream()
+							.filter(share-> share[1]==hostIndex)
+							.map(share-> share[0])
+							.collect(Collectors.toSet());
+					return IntStream.range(0,size)
+							.filter(j-> !invalidDealers.contains(j))
+							.boxed()
+							.collect(Collectors.toList()); })
+				.collect(Collectors.toList());
+	}
+	
+	// share {dealer, recipient} against the dealer's combined commitments
+	private boolean verifyShare(List<PerdersonVss> dkgPoints, int[] share) {
+		return verifyPublicValsFirstStage(share[1]+1,
+				dkgPoints.get(share[0]).shares1.get(share[1]),
+				dkgPoints.get(share[0]).shares2.get(share[1]),
+				dkgPoints.get(share[0]).publicVals);
 	}
 	
+	// shares are {dealer, recipient} pairs; a failing batch is bisected down to the bad pairs.
+	// The random combination is only sound inside the order q subgroup, so dealers whose
+	// commitments leave it fail all of their shares up front.
+	private List<int[]> findInvalidShares(List<PerdersonVss> dkgPoints, List<int[]> shares) {
+		List<Integer> dealers = shares.stream()
+				.map(share-> share[0])
+				.distinct()
+				.collect(Collectors.toList());
+		Set<Integer> outside = scheduler.filter(t, dealers.size(), k-> !inSubgroup(dkgPoints.get(dealers.get(k)).publicVals))
+				.stream()
+				.map(dealers::get)
+				.collect(Collectors.toSet());
+		List<int[]> invalid = shares.stream()
+				.filter(share-> outside.contains(share[0]))
+				.collect(Collectors.toList());
+		invalid.forEach(share-> metrics.verificationFailed(Phase.QUAL, share[0], share[1], "commitments outside the subgroup"));
+		List<int[]> mismatched = bisect(shares.stream()
+						.filter(share-> !outside.contains(share[0]))
+						.collect(Collectors.toList()),
+				batch-> verifySharesBatch(dkgPoints, batch),
+				share-> verifyShare(dkgPoints, share));
+		mismatched.forEach(share-> metrics.verificationFailed(Phase.QUAL, share[0], share[1], "share does not match commitments"));
+		invalid.addAll(mismatched);
+		return invalid;
+	}
+	
+	private boolean inSubgroup(List<BigInteger> elements) {
+		metrics.modPow(elements.size());
+		return elements.stream()
+				.allMatch(group::contains);
+	}
+	
+	// items of a failing batch are bisected until the bad ones are isolated
+	private <T> List<T> bisect(List<T> items, Predicate<List<T>> batchValid, Predicate<T> valid) {
+		if(items.size()==1) {
+			return valid.test(items.get(0)) ? List.of() : items;
+		}
+		if(items.isEmpty() || batchValid.test(items)) {
+			return List.of();
+		}
+		int half = items.size()/2;
+		List<List<T>> parts = Arrays.asList(items.subList(0,half), items.subList(half,items.size()));
+		return scheduler.map(t, 2, k-> bisect(parts.get(k), batchValid, valid))
+				.stream()
+				.flatMap(List::stream)
+				.collect(Collectors.toList());
+	}
+	
+	private static BigInteger batchExponent() {
+		return batchRandomness.local().nextBits(BATCH_EXPONENT_BITS).setBit(0);
+	}
+	
+	// small-exponent test: g^(sum d*s1) * h^(sum d*s2) == prod_j prod_i C_ji^(sum d*x^i)
+	private boolean verifySharesBatch(List<PerdersonVss> dkgPoints, List<int[]> shares) {
+		BigInteger share1 = BigInteger.ZERO;
+		BigInteger share2 = BigInteger.ZERO;
+		Map<Integer, BigInteger[]> exponents = new TreeMap<>();
+		for(int[] share: shares) {
+			PerdersonVss dealer = dkgPoints.get(share[0]);
+			if(share[1]>=n || dealer.publicVals.size()!=t) {
+				return false;
+			}
+			BigInteger delta = batchExponent();
+			share1 = share1.add(delta.multiply(dealer.shares1.get(share[1])));
+			share2 = share2.add(delta.multiply(dealer.shares2.get(share[1])));
+			
+			BigInteger[] dealerExponents = exponents.computeIfAbsent(share[0], j-> new BigInteger[t]);
+			BigInteger x = BigInteger.valueOf(share[1]+1);
+			BigInteger term = delta;
+			for(int i=0; i<t; i++) {
+				dealerExponents[i] = dealerExponents[i]==null ? term : dealerExponents[i].add(term);
+				term = term.multiply(x).mod(q);
+			}
+		}
+		BigInteger combinedShares = group.mul(gPow.apply(share1.mod(q)), hPow.apply(share2.mod(q)));
+		List<BigInteger> bases = new ArrayList<>();
+		List<BigInteger> baseExponents = new ArrayList<>();
+		exponents.forEach((j, dealerExponents)-> {
+			bases.addAll(dkgPoints.get(j).publicVals);
+			Arrays.stream(dealerExponents).map(e-> e.mod(q)).forEach(baseExponents::add);
+		});
+		BigInteger combinedVals = multiExp(bases, baseExponents);
+		return combinedShares.equals(combinedVals);
+	}
+	
+	// dealers in qual whose share for hostIndex fails g^s == prod A_k^(x^k) against their publicVals1
 	public List<Integer> genToConstruct(List<Integer> qual,List<PerdersonVss> dkgPoints,int hostIndex) {
-		return qual.parallelStream()
-		 .filter(j-> verifyPublicValsFinalStage(j,
-						 dkgPoints.get(j).shares1.get(hostIndex), 
-						 dkgPoints.get(j).publicVals))
-		 .collect(Collectors.toList());
+		return metrics.time(Phase.COMPLAINT, ()-> scheduler.filter(t, qual.size(),
+				k-> !verifyPublicValsFinalStage(hostIndex+1,
+						dkgPoints.get(qual.get(k)).shares1.get(hostIndex), 
+						dkgPoints.get(qual.get(k)).publicVals1))
+				.stream()
+				.map(qual::get)
+				.collect(Collectors.toList()));
+	}
+	
+	// dealers in qual that fail the check of genToConstruct for any recipient, one batched check per dealer
+	public List<Integer> calCollectedToConstruct(List<Integer> qual,List<PerdersonVss> dkgPoints) {
+		return metrics.time(Phase.COMPLAINT, ()-> scheduler.filter(t, qual.size(),
+				k-> !verifyFinalStageBatch(qual.get(k), dkgPoints.get(qual.get(k)), dkgPoints.size()))
+				.stream()
+				.map(qual::get)
+				.collect(Collectors.toList()));
+	}
+	
+	// small-exponent test over all recipients: g^(sum d*s) == prod_k A_k^(sum d*x^k)
+	private boolean verifyFinalStageBatch(int j, PerdersonVss dealer, int recipients) {
+		List<BigInteger> publicVals1 = dealer.publicVals1;
+		if(publicVals1.size()!=t || !inSubgroup(publicVals1)) {
+			metrics.verificationFailed(Phase.COMPLAINT, j, -1, "commitments outside the subgroup");
+			return false;
+		}
+		BigInteger share = BigInteger.ZERO;
+		BigInteger[] exponents = new BigInteger[t];
+		Arrays.fill(exponents, BigInteger.ZERO);
+		for(int i=0; i<recipients; i++) {
+			BigInteger delta = batchExponent();
+			share = share.add(delta.multiply(dealer.shares1.get(i)));
+			BigInteger x = BigInteger.valueOf(i+1);
+			BigInteger term = delta;
+			for(int k=0; k<t; k++) {
+				exponents[k] = exponents[k].add(term);
+				term = term.multiply(x).mod(q);
+			}
+		}
+		boolean valid = gPow.apply(share.mod(q)).equals(multiExp(publicVals1,
+				Arrays.stream(exponents).map(e-> e.mod(q)).collect(Collectors.toList())));
+		if(!valid) {
+			metrics.verificationFailed(Phase.COMPLAINT, j, -1, "shares do not match g commitments");
+		}
+		return valid;
+	}
+	
+	/**
+	 * Recovers g^a0 for every dealer in toConstruct from t of its shares that pass the
+	 * Pedersen check. Shares of all dealers are checked in one batch, dealers short of
+	 * t good shares move on to further recipients. Dealers whose shares come from the
+	 * same recipients share one set of cached Lagrange weights.
+	 */
+	public Map<Integer, BigInteger> reconstruct(List<Integer> toConstruct, List<PerdersonVss> dkgPoints) {
+		return metrics.time(Phase.COMPLAINT, ()-> reconstructUntimed(toConstruct, dkgPoints));
+	}
+	
+	private Map<Integer, BigInteger> reconstructUntimed(List<Integer> toConstruct, List<PerdersonVss> dkgPoints) {
+		int size = dkgPoints.size();
+		Map<Integer, List<Integer>> holders = new TreeMap<>();
+		Map<Integer, Integer> nextRecipient = new TreeMap<>();
+		toConstruct.forEach(j-> {
+			holders.put(j, new ArrayList<>());
+			nextRecipient.put(j, 0);
+		});
+		while(true) {
+			List<int[]> pairs = new ArrayList<>();
+			for(int j: toConstruct) {
+				int missing = t-holders.get(j).size();
+				int next = nextRecipient.get(j);
+				if(missing>0 && next+missing>size) {
+					throw new IllegalStateException("dealer "+j+" has fewer than t valid shares");
+				}
+				for(int k=0; k<missing; k++) {
+					pairs.add(new int[] {j,next+k});
+				}
+				nextRecipient.put(j, next+Math.max(missing,0));
+			}
+			if(pairs.isEmpty()) {
+				break;
+			}
+			Set<Long> invalid = findInvalidShares(dkgPoints, pairs).stream()
+					.map(pair-> (long)pair[0]*size+pair[1])
+					.collect(Collectors.toSet());
+			pairs.stream()
+					.filter(pair-> !invalid.contains((long)pair[0]*size+pair[1]))
+					.forEach(pair-> holders.get(pair[0]).add(pair[1]));
+		}
+		List<BigInteger> values = scheduler.map(t, toConstruct.size(), k-> {
+			int j = toConstruct.get(k);
+			List<Integer> recipients = holders.get(j);
+			List<BigInteger> lambdas = lagrange.coefficients(recipients.stream().map(i-> i+1).collect(Collectors.toList()), 0);
+			BigInteger secret = BigInteger.ZERO;
+			for(int i=0; i<recipients.size(); i++) {
+				secret = secret.add(lambdas.get(i).multiply(dkgPoints.get(j).shares1.get(recipients.get(i))));
+			}
+			return gPow.apply(secret.mod(q)); });
+		Map<Integer, BigInteger> reconstructed = new TreeMap<>();
+		for(int k=0; k<toConstruct.size(); k++) {
+			reconstructed.put(toConstruct.get(k), values.get(k));
+		}
+		return reconstructed;
 	}
 	
 	public BigInteger calSecret1(List<Integer> qual,List<PerdersonVss> dkgPoints, int hostIndex) {
-		return calFinalVal(qual, i-> dkgPoints.get(i).shares1.get(hostIndex),(a,b)->a.add(b).mod(p));
+		return metrics.time(Phase.SECRET, ()-> ShareMatrix.sum(shares1Column(dkgPoints, hostIndex), qual, q));
 	}
 	
 	public BigInteger calSecret2(List<Integer> qual,List<PerdersonVss> dkgPoints, int hostIndex) {
-		return calFinalVal(qual, i-> dkgPoints.get(i).shares2.get(hostIndex),(a,b)->a.add(b).mod(p));
+		return metrics.time(Phase.SECRET, ()-> ShareMatrix.sum(shares2Column(dkgPoints, hostIndex), qual, q));
 	}
 	
 	public BigInteger calPublicVal(List<Integer> qual,List<PerdersonVss> dkgPoints) {
-		return calFinalVal(qual, i-> dkgPoints.get(i).publicVals1.get(0),(a,b)->a.multiply(b).mod(p));
+		return calPublicVal(qual, dkgPoints, Map.of());
+	}
+	
+	// reconstructed g^a0 from reconstruct stands in for the commitment of its dealer
+	public BigInteger calPublicVal(List<Integer> qual,List<PerdersonVss> dkgPoints, Map<Integer, BigInteger> reconstructed) {
+		return metrics.time(Phase.PUBLIC_VALUE, ()-> calFinalVal(qual, i-> publicVal(dkgPoints, i, reconstructed)));
+	}
+	
+	private static BigInteger publicVal(List<PerdersonVss> dkgPoints, int j, Map<Integer, BigInteger> reconstructed) {
+		BigInteger value = reconstructed.get(j);
+		return value!=null ? value : dkgPoints.get(j).publicVals1.get(0);
 	}
 	
 	public List<BigInteger> calCollectedSecret1(List<List<Integer>> quals, List<PerdersonVss> dkgPoints) {
-		return calCollectedFinalVal(quals, dkgPoints, (i,j)-> dkgPoints.get(i).shares1.get(j),(a,b)->a.add(b).mod(p));
+		return metrics.time(Phase.SECRET, ()-> scheduler.map(t, dkgPoints.size(),
+				hostIndex-> ShareMatrix.sum(shares1Column(dkgPoints, hostIndex), quals.get(hostIndex), q)));
 	}
 	
 	public List<BigInteger> calCollectedSecret2(List<List<Integer>> quals, List<PerdersonVss> dkgPoints) {
-		return calCollectedFinalVal(quals, dkgPoints, (i,j)-> dkgPoints.get(i).shares2.get(j),(a,b)->a.add(b).mod(p));
+		return metrics.time(Phase.SECRET, ()-> scheduler.map(t, dkgPoints.size(),
+				hostIndex-> ShareMatrix.sum(shares2Column(dkgPoints, hostIndex), quals.get(hostIndex), q)));
 	}
 	
 	public List<BigInteger> calCollectedPublicVal(List<List<Integer> > quals, List<PerdersonVss> dkgPoints) {
-		return calCollectedFinalVal(quals, dkgPoints, (i,j)-> dkgPoints.get(i).publicVals1.get(0),(a,b)->a.multiply(b).mod(p));
+		return calCollectedPublicVal(quals, dkgPoints, Map.of());
 	}
 	
-	private List<BigInteger> calCollectedFinalVal(List<List<Integer> > quals, List<PerdersonVss> dkgPoints, BiFunction<Integer, Integer, BigInteger> valSupplier,BiFunction<BigInteger,BigInteger,BigInteger> collector ) {
-		return IntStream.range(0,dkgPoints.size())
-				.boxed()
-				.parallel()
-				.map(hostIndex-> calFinalVal(quals.get(hostIndex), i->valSupplier.apply(i,hostIndex),collector))
-				.collect(Collectors.toList());
+	public List<BigInteger> calCollectedPublicVal(List<List<Integer> > quals, List<PerdersonVss> dkgPoints, Map<Integer, BigInteger> reconstructed) {
+		return metrics.time(Phase.PUBLIC_VALUE, ()-> calCollectedFinalVal(quals, dkgPoints, (i,j)-> publicVal(dkgPoints, i, reconstructed)));
 	}
 	
-	private BigInteger calFinalVal(List<Integer> qual, Function<Integer, BigInteger> valSupplier, BiFunction<BigInteger,BigInteger,BigInteger> collector ) {
-		return qual.parallelStream()
-				.map(i-> valSupplier.apply(i))
-				.reduce((a,b)->collector.apply(a,b))
-				.get(); 
+	private List<BigInteger> calCollectedFinalVal(List<List<Integer> > quals, List<PerdersonVss> dkgPoints, BiFunction<Integer, Integer, BigInteger> valSupplier) {
+		return scheduler.map(t, dkgPoints.size(),
+				hostIndex-> calFinalVal(quals.get(hostIndex), i->valSupplier.apply(i,hostIndex)));
 	}
-
-	public byte[] SHA256(byte[]... data) {
-		MessageDigest mDigest = null;
-		try {
-			mDigest = MessageDigest.getInstance("SHA-256");
-		} catch (NoSuchAlgorithmException e) {
-			System.out.println(e);
-			System.exit(-1);
-		}
-
-		ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
-		for(byte[]d:data) {
-			try{
-				dataStream.write(d);
-			} catch (IOException e) {
-				System.out.println(e);
-				System.exit(-1);
-			}
-		}
-
-		return (new BigInteger(dataStream.toByteArray())).mod(p).toByteArray();
+	
+	private BigInteger calFinalVal(List<Integer> qual, Function<Integer, BigInteger> valSupplier) {
+		return group.product(qual.stream()
+				.map(i-> valSupplier.apply(i))
+				.collect(Collectors.toList()));
 	}
 
 	public List<BigInteger> encrypt(BigInteger m, BigInteger L, BigInteger publicVal) {
-		System.out.println("to be encrpt: "+m);
-		BigInteger _g = this.h;
-		
-		BigInteger h = publicVal;
-		Function<BigInteger,BigInteger> hPow = bindPowMod(h);
-		
-		Random rand = new Random();
-		BigInteger r = BigInteger.valueOf(rand.nextInt(Integer.MAX_VALUE)+1);
-		BigInteger s = BigInteger.valueOf(rand.nextInt(Integer.MAX_VALUE)+1);
-		
-		// calculate c
-
-		byte[] hPowR = SHA256(hPow.apply(r).toByteArray());
-
-		BigInteger c = (new BigInteger(hPowR)).xor(m);
+		return metrics.time(Phase.ENCRYPT, ()-> encryptOnline(m, L, coupon(publicVal, bindPowMod(publicVal))));
+	}
+	
+	// the online part of encrypt alone: two hashes, an xor and a multiply-add
+	public List<BigInteger> encrypt(BigInteger m, BigInteger L, EncryptionCoupon coupon) {
+		return metrics.time(Phase.ENCRYPT, ()-> encryptOnline(m, L, coupon));
+	}
+	
+	public EncryptionCoupon encryptionCoupon(BigInteger publicVal) {
+		return coupon(publicVal, bindPowMod(publicVal));
+	}
+	
+	// coupons for one public value, which gets a fixed-base table of its own that
+	// lives as long as the returned supplier
+	public Supplier<EncryptionCoupon> encryptionCoupons(BigInteger publicVal) {
+		Function<BigInteger,BigInteger> publicValPow = counted(group.newFixedBase(publicVal));
+		return ()-> coupon(publicVal, publicValPow);
+	}
+	
+	private EncryptionCoupon coupon(BigInteger publicVal, Function<BigInteger,BigInteger> publicValPow) {
+		Drbg rand = randomness.local();
+		BigInteger r = rand.nextNonzeroScalar(q);
+		BigInteger s = rand.nextNonzeroScalar(q);
 		
 		// calculate u,w,_u,_w
-		Function<BigInteger,BigInteger> gPow = bindPowMod(g);
-		Function<BigInteger,BigInteger> _gPow = bindPowMod(_g);
+		Function<BigInteger,BigInteger> _gPow = this.hPow;
 		BigInteger u = gPow.apply(r);
 		BigInteger w = gPow.apply(s);
 		BigInteger _u = _gPow.apply(r);
 		BigInteger _w = _gPow.apply(s);
 		
+		return new EncryptionCoupon(publicVal, r, s, u, w, _u, _w, publicValPow.apply(r));
+	}
+	
+	private List<BigInteger> encryptOnline(BigInteger m, BigInteger L, EncryptionCoupon coupon) {
+		coupon.use();
+		
+		// calculate c
+		BigInteger c = mask(coupon.publicValPowR, m);
+		
 		// calculate e
-		BigInteger e = new BigInteger(SHA256(c.toByteArray()
-				,L.toByteArray()
-				,u.toByteArray()
-				,w.toByteArray()
-				,_u.toByteArray()
-				,_w.toByteArray()));
-
-		BigInteger f = s.add(r.multiply(e));
+		BigInteger e = Transcript.start(CIPHERTEXT_DOMAIN)
+				.absorb(c, L, coupon.u, coupon.w, coupon._u, coupon._w)
+				.challenge(q);
+
+		BigInteger f = coupon.s.add(coupon.r.multiply(e)).mod(q);
 		
-		return Arrays.asList(c,L,u,_u,e,f);
+		return Arrays.asList(c,L,coupon.u,coupon._u,e,f);
+	}
+
+	// the mask H(h^r), |p| bits wide, xored onto the message, h^r being recovered from the shares on decryption
+	private BigInteger mask(BigInteger hPowR, BigInteger c) {
+		return Transcript.start(MASK_DOMAIN)
+				.absorb(hPowR)
+				.squeezeBits(p.bitLength())
+				.xor(c);
 	}
 
-	// Lagrange interpolation coefficients
-	private BigInteger LILambda(List<Integer> qual, int i, int x) {
-		BigInteger topHalf = qual.parallelStream()
-				.filter(j-> j!=i)
-				.map(j-> BigInteger.valueOf(x-(j+1)))
-				.reduce((a,b)->a.multiply(b))
-				.get();
-		BigInteger bottomHalf = qual.parallelStream()
-				.filter(j-> j!=i)
-				.map(j-> BigInteger.valueOf(i-j))
-				.reduce((a,b)->a.multiply(b))
-				.get();
-		return topHalf.divide(bottomHalf);
+	// recomputes e = H(c, L, u, g^f u^-e, _u, _g^f _u^-e) for a ciphertext
+	private BigInteger ciphertextChallenge(List<BigInteger> ciphertext) {
+		BigInteger c = ciphertext.get(0);
+		BigInteger L = ciphertext.get(1);
+		BigInteger u = ciphertext.get(2);
+		BigInteger _u = ciphertext.get(3);
+		BigInteger e = ciphertext.get(4).mod(q);
+		BigInteger f = ciphertext.get(5);
+
+		metrics.modPow(2);
+		metrics.modInverse(2);
+		BigInteger w = group.mul(gPow.apply(f), group.inverse(group.pow(u, e)));
+		BigInteger _w = group.mul(hPow.apply(f), group.inverse(group.pow(_u, e)));
+
+		return Transcript.start(CIPHERTEXT_DOMAIN)
+				.absorb(c, L, u, w, _u, _w)
+				.challenge(q);
 	}
 
 	public BigInteger decrypt(List<BigInteger> ciphertext, List<PerdersonVss> dkgPoints, List<Integer> qual) {
+		return metrics.time(Phase.DECRYPT, ()-> decryptUntimed(ciphertext, finalSecrets1(dkgPoints), qual));
+	}
 
-		// ciphertext verification
-		if(ciphertext.size()!=6) {
-			System.out.println("ciphertext size not equal to 6");
-			System.exit(-1);
+	// keyShares.get(i) is participant i's share, e.g. as reloaded from a KeyShareStore
+	public BigInteger decrypt(List<BigInteger> ciphertext, List<KeyShare> keyShares) {
+		return metrics.time(Phase.DECRYPT, ()-> decryptUntimed(ciphertext, secrets1(keyShares), qual(keyShares)));
+	}
+
+	private static List<BigInteger> finalSecrets1(List<PerdersonVss> dkgPoints) {
+		return dkgPoints.stream()
+				.map(PerdersonVss::getFinalSecret1)
+				.collect(Collectors.toList());
+	}
+
+	static List<BigInteger> secrets1(List<KeyShare> keyShares) {
+		return IntStream.range(0,keyShares.size())
+				.mapToObj(i-> {
+					if(keyShares.get(i).index!=i) {
+						throw new IllegalArgumentException("key share "+i+" belongs to participant "+keyShares.get(i).index);
+					}
+					return keyShares.get(i).secret1; })
+				.collect(Collectors.toList());
+	}
+
+	// the qual set the key shares agree on
+	static List<Integer> qual(List<KeyShare> keyShares) {
+		if(keyShares.isEmpty()) {
+			throw new IllegalArgumentException("no key shares");
+		}
+		List<Integer> qual = keyShares.get(0).qual;
+		for(KeyShare keyShare : keyShares) {
+			if(!keyShare.qual.equals(qual)) {
+				throw new IllegalArgumentException("key share "+keyShare.index+" has a different qual set");
+			}
+		}
+		return qual;
+	}
+
+	private BigInteger decryptUntimed(List<BigInteger> ciphertext, List<BigInteger> secrets, List<Integer> qual) {
+
+		// ciphertext verification, the same checks as for a batch including subgroup membership of u and _u
+		if(!validCiphertext(ciphertext)) {
+			throw new InvalidCiphertextException("ciphertext is not right");
 		}
 
-		BigInteger _g = this.h;
 		BigInteger c = ciphertext.get(0);
-		BigInteger L = ciphertext.get(1);
 		BigInteger u = ciphertext.get(2);
-		BigInteger _u = ciphertext.get(3);
-		BigInteger e = ciphertext.get(4);
-		BigInteger f = ciphertext.get(5);
 
-		Function<BigInteger,BigInteger> gPow = bindPowMod(g);
 		Function<BigInteger,BigInteger> uPow = bindPowMod(u);
-		Function<BigInteger,BigInteger> _gPow = bindPowMod(_g);
-		Function<BigInteger,BigInteger> _uPow = bindPowMod(_u);
-
-		BigInteger w = gPow.apply(f).multiply(uPow.apply(e).modInverse(p)).mod(p);
-		BigInteger _w = _gPow.apply(f).multiply(_uPow.apply(e).modInverse(p)).mod(p);
-
-		BigInteger _e = new BigInteger(SHA256(
-				c.toByteArray(),
-				L.toByteArray(),
-				u.toByteArray(),
-				w.toByteArray(),
-				_u.toByteArray(),
-				_w.toByteArray()
-		));
-
-		if(!e.equals(_e)) {
-			System.out.println("ciphertext is not right");
-			System.out.println("current e: "+e);
-			System.out.println("target _e: "+_e);
-			System.exit(-1);
-		}
 
 		// calculate decryption shares
 
-		List<List<BigInteger>> shares = IntStream.range(0,dkgPoints.size())
-				.boxed()
-				.parallel()
-				.map((i)->{
-					BigInteger xi = dkgPoints.get(i).getFinalSecret1();
+		List<List<BigInteger>> shares = scheduler.map(t, secrets.size(),
+				(i)->{
+					BigInteger xi = secrets.get(i);
 					BigInteger ui = uPow.apply(xi);
-					Random rand = new Random();
-					BigInteger si = BigInteger.valueOf(rand.nextInt(Integer.MAX_VALUE)+1);
+					BigInteger si = randomness.local().nextNonzeroScalar(q);
 					BigInteger _ui = uPow.apply(si);
 					BigInteger _hi = gPow.apply(si);
-					BigInteger ei = new BigInteger(SHA256(ui.toByteArray(),
-							_ui.toByteArray(),
-							_hi.toByteArray()));
-					BigInteger fi = si.add(xi.multiply(ei));
-					return Arrays.asList(BigInteger.valueOf(i),ui,ei,fi); })
-				.collect(Collectors.toList());
+					BigInteger ei = decryptionShareChallenge(ui, _ui, _hi);
+					BigInteger fi = si.add(xi.multiply(ei)).mod(q);
+					return Arrays.asList(BigInteger.valueOf(i),ui,ei,fi); });
 
 		// share verification
 		shares.forEach(
 				share-> {
-					if(share.size()!=4) {
-						System.out.println("share size not equal to 4");
-						System.exit(-1);
-					}
-
 					BigInteger i  = share.get(0);
 					BigInteger ui = share.get(1);
 					Function<BigInteger,BigInteger> uiPow = bindPowMod(ui);
 					BigInteger ei = share.get(2);
 					BigInteger fi = share.get(3);
-					BigInteger hi = gPow.apply(dkgPoints.get(i.intValue()).getFinalSecret1());
+					BigInteger hi = gPow.apply(secrets.get(i.intValue()));
 					Function<BigInteger,BigInteger> hiPow = bindPowMod(hi);
-					BigInteger _ui = uPow.apply(fi).multiply(uiPow.apply(ei).modInverse(p)).mod(p);
-					BigInteger _hi = gPow.apply(fi).multiply(hiPow.apply(ei).modInverse(p)).mod(p);
+					metrics.modInverse(2);
+					BigInteger _ui = group.mul(uPow.apply(fi), group.inverse(uiPow.apply(ei.mod(q))));
+					BigInteger _hi = group.mul(gPow.apply(fi), group.inverse(hiPow.apply(ei.mod(q))));
 
-					BigInteger _ei = new BigInteger(SHA256(ui.toByteArray(),
-							_ui.toByteArray(),
-							_hi.toByteArray()
-					));
+					BigInteger _ei = decryptionShareChallenge(ui, _ui, _hi);
 
 					if(!ei.equals(_ei)) {
-						System.out.println("share verification fail at "+i);
-						System.out.println("current ei: "+ei);
-						System.out.println("target _ei: "+_ei);
-						System.exit(-1);
+						metrics.verificationFailed(Phase.DECRYPT, -1, i.intValue(), "decryption share proof does not verify");
+						throw new InvalidDecryptionShareException(i.intValue(), "share verification fail at "+i);
 					}
 				}
 		);
 
 		// recover message
-		BigInteger m = qual.parallelStream()
-				.map(i-> {
-					BigInteger lambdai = LILambda(qual,i,0);
-					BigInteger ui = shares.get(i).get(1);
-					return ui.modPow(lambdai,p); })
-				.reduce((a,b)-> a.multiply(b).mod(p))
-				.get()
-				.xor(c);
-		System.out.println("decryption message: "+m);
-		return m;
+		return mask(multiExp(
+				qual.stream().map(i-> shares.get(i).get(1)).collect(Collectors.toList()),
+				lagrange.coefficients(qual.stream().map(i-> i+1).collect(Collectors.toList()), 0)),
+				c);
+	}
+
+	/**
+	 * Decrypts many ciphertexts under the same key shares. Verification keys g^x_i
+	 * are computed once for the whole batch. Decryption shares carry their proof in
+	 * commitment form [i, u_i, u^s, g^s, f], so all of them are checked with one
+	 * randomized equation; only a failing batch is bisected to name the bad share.
+	 * Ciphertext proofs are challenge-form (e, f) and have to be recomputed one by one.
+	 * A bad ciphertext or share throws an InvalidCiphertextException or
+	 * InvalidDecryptionShareException for the whole batch; DecryptionService fails
+	 * only the requests concerned.
+	 */
+	public List<BigInteger> decryptBatch(List<List<BigInteger>> ciphertexts, List<PerdersonVss> dkgPoints, List<Integer> qual) {
+		return metrics.time(Phase.DECRYPT, ()-> decryptBatchUntimed(ciphertexts, finalSecrets1(dkgPoints), qual));
+	}
+
+	public List<BigInteger> decryptBatch(List<List<BigInteger>> ciphertexts, List<KeyShare> keyShares) {
+		return metrics.time(Phase.DECRYPT, ()-> decryptBatchUntimed(ciphertexts, secrets1(keyShares), qual(keyShares)));
+	}
+
+	private List<BigInteger> decryptBatchUntimed(List<List<BigInteger>> ciphertexts, List<BigInteger> secrets, List<Integer> qual) {
+
+		// ciphertext verification
+		List<Integer> invalid = invalidCiphertexts(ciphertexts);
+		if(!invalid.isEmpty()) {
+			throw new InvalidCiphertextException(invalid.get(0), "ciphertext "+invalid.get(0)+" is not right");
+		}
+
+		return decryptVerified(ciphertexts, secrets, verificationKeys(secrets), qual);
+	}
+
+	// indices of the ciphertexts that are malformed or whose proof does not verify, ascending
+	List<Integer> invalidCiphertexts(List<List<BigInteger>> ciphertexts) {
+		return scheduler.filter(t, ciphertexts.size(), k-> !validCiphertext(ciphertexts.get(k)));
+	}
+
+	private boolean validCiphertext(List<BigInteger> ciphertext) {
+		if(!wellFormed(ciphertext)) {
+			metrics.verificationFailed(Phase.DECRYPT, -1, -1, "ciphertext is malformed");
+			return false;
+		}
+		if(!inSubgroup(ciphertext.subList(2,4))
+				|| !ciphertext.get(4).equals(ciphertextChallenge(ciphertext))) {
+			metrics.verificationFailed(Phase.DECRYPT, -1, -1, "ciphertext is not right");
+			return false;
+		}
+		return true;
+	}
+
+	// shape and ranges of [c, L, u, _u, e, f] without any exponentiation; the proof is not checked
+	boolean wellFormed(List<BigInteger> ciphertext) {
+		if(ciphertext==null || ciphertext.size()!=6 || ciphertext.stream().anyMatch(Objects::isNull)) {
+			return false;
+		}
+		return group.isCanonical(ciphertext.get(2)) && group.isCanonical(ciphertext.get(3))
+				&& isScalar(ciphertext.get(4)) && isScalar(ciphertext.get(5));
+	}
+
+	private boolean isScalar(BigInteger x) {
+		return x.signum()>=0 && x.compareTo(q)<0;
+	}
+
+	// g^x_i of every participant
+	List<BigInteger> verificationKeys(List<BigInteger> secrets) {
+		return scheduler.map(t, secrets.size(), i-> gPow.apply(secrets.get(i)));
+	}
+
+	// ciphertexts already checked with invalidCiphertexts
+	List<BigInteger> decryptVerified(List<List<BigInteger>> ciphertexts, List<BigInteger> secrets,
+			List<BigInteger> verificationKeys, List<Integer> qual) {
+
+		// calculate decryption shares, shares.get(k).get(i)
+		List<List<List<BigInteger>>> shares = scheduler.map(t, ciphertexts.size(),
+				k-> {
+					List<BigInteger> ciphertext = ciphertexts.get(k);
+					Function<BigInteger,BigInteger> uPow = bindPowMod(ciphertext.get(2));
+					Drbg rand = randomness.local();
+					return IntStream.range(0,secrets.size())
+							.mapToObj(i-> {
+								BigInteger xi = secrets.get(i);
+								BigInteger ui = uPow.apply(xi);
+								BigInteger si = rand.nextNonzeroScalar(q);
+								BigInteger _ui = uPow.apply(si);
+								BigInteger _hi = gPow.apply(si);
+								BigInteger ei = decryptionShareChallenge(ui, _ui, _hi);
+								BigInteger fi = si.add(xi.multiply(ei)).mod(q);
+								return Arrays.asList(BigInteger.valueOf(i),ui,_ui,_hi,fi); })
+							.collect(Collectors.toList()); });
+
+		// share verification
+		List<int[]> all = IntStream.range(0,ciphertexts.size())
+				.boxed()
+				.flatMap(k-> IntStream.range(0,secrets.size()).mapToObj(i-> new int[] {k,i}))
+				.collect(Collectors.toList());
+		List<int[]> invalidShares = bisect(all,
+				batch-> verifyDecryptionSharesBatch(ciphertexts, shares, verificationKeys, batch),
+				share-> verifyDecryptionShare(ciphertexts.get(share[0]).get(2),
+						shares.get(share[0]).get(share[1]),
+						verificationKeys.get(share[1])));
+		if(!invalidShares.isEmpty()) {
+			invalidShares.forEach(share-> metrics.verificationFailed(Phase.DECRYPT, -1, share[1], "decryption share proof does not verify"));
+			int[] first = invalidShares.get(0);
+			throw new InvalidDecryptionShareException(first[1], "share verification fail at "+first[1]+" for ciphertext "+first[0]);
+		}
+
+		// recover messages
+		List<BigInteger> lambdas = lagrange.coefficients(qual.stream().map(i-> i+1).collect(Collectors.toList()), 0);
+		return scheduler.map(t, ciphertexts.size(),
+				k-> mask(multiExp(
+						qual.stream().map(i-> shares.get(k).get(i).get(1)).collect(Collectors.toList()),
+						lambdas),
+						ciphertexts.get(k).get(0)));
+	}
+
+	private BigInteger decryptionShareChallenge(BigInteger ui, BigInteger _ui, BigInteger _hi) {
+		return Transcript.start(DECRYPTION_SHARE_DOMAIN)
+				.absorb(ui, _ui, _hi)
+				.challenge(q);
+	}
+
+	// u^f == _ui * ui^e and g^f == _hi * hi^e
+	private boolean verifyDecryptionShare(BigInteger u, List<BigInteger> share, BigInteger hi) {
+		BigInteger ui = share.get(1);
+		BigInteger _ui = share.get(2);
+		BigInteger _hi = share.get(3);
+		BigInteger fi = share.get(4);
+		BigInteger ei = decryptionShareChallenge(ui, _ui, _hi);
+		metrics.modPow(3);
+		return group.pow(u, fi).equals(group.mul(_ui, group.pow(ui, ei)))
+				&& gPow.apply(fi).equals(group.mul(_hi, group.pow(hi, ei)));
+	}
+
+	/*
+	 * prod_k u_k^(sum_i d*f) * g^(sum d'*f) == prod _ui^d * ui^(d*e) * _hi^d' * prod_i hi^(sum_k d'*e)
+	 * The shares are produced above from subgroup elements; shares taken from elsewhere
+	 * need a subgroup check before they can be batched.
+	 */
+	private boolean verifyDecryptionSharesBatch(List<List<BigInteger>> ciphertexts, List<List<List<BigInteger>>> shares,
+			List<BigInteger> verificationKeys, List<int[]> batch) {
+		Map<Integer, BigInteger> uExponents = new TreeMap<>();
+		Map<Integer, BigInteger> hExponents = new TreeMap<>();
+		BigInteger gExponent = BigInteger.ZERO;
+		List<BigInteger> rightBases = new ArrayList<>();
+		List<BigInteger> rightExponents = new ArrayList<>();
+		for(int[] pair: batch) {
+			List<BigInteger> share = shares.get(pair[0]).get(pair[1]);
+			BigInteger ui = share.get(1);
+			BigInteger _ui = share.get(2);
+			BigInteger _hi = share.get(3);
+			BigInteger fi = share.get(4);
+			BigInteger ei = decryptionShareChallenge(ui, _ui, _hi);
+			BigInteger delta1 = batchExponent();
+			BigInteger delta2 = batchExponent();
+
+			uExponents.merge(pair[0], delta1.multiply(fi), BigInteger::add);
+			gExponent = gExponent.add(delta2.multiply(fi));
+			hExponents.merge(pair[1], delta2.multiply(ei), BigInteger::add);
+			rightBases.addAll(Arrays.asList(_ui, ui, _hi));
+			rightExponents.addAll(Arrays.asList(delta1, delta1.multiply(ei).mod(q), delta2));
+		}
+		List<BigInteger> leftBases = new ArrayList<>();
+		List<BigInteger> leftExponents = new ArrayList<>();
+		uExponents.forEach((k, exponent)-> {
+			leftBases.add(ciphertexts.get(k).get(2));
+			leftExponents.add(exponent.mod(q));
+		});
+		hExponents.forEach((i, exponent)-> {
+			rightBases.add(verificationKeys.get(i));
+			rightExponents.add(exponent.mod(q));
+		});
+		BigInteger left = group.mul(multiExp(leftBases, leftExponents), gPow.apply(gExponent.mod(q)));
+		return left.equals(multiExp(rightBases, rightExponents));
 	}
 }
@@ -0,0 +1,211 @@
+package dkg;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import dkg.group.Group;
+import dkg.metrics.Phase;
+
+/**
+ * Incremental QUAL for one recipient. Dealings are accepted one at a time as they
+ * arrive and verified right away on the factory's scheduler; every dealer that
+ * passes is added to a running QUAL set together with its contribution to the
+ * running secrets and public value. {@link #ready()} completes as soon as the
+ * required number of dealers qualified, all n dealers are decided, or the deadline
+ * expires, whichever comes first. Later dealings keep updating the running state,
+ * so {@link #snapshot()} may grow after ready() completed.
+ *
+ * A snapshot taken while dealers were undecided is partial: other participants may
+ * settle on a different QUAL, so its key share is only given out for a QUAL the
+ * participants agreed on.
+ */
+public final class QualPipeline {
+
+	public static final class Snapshot {
+		private final QualPipeline pipeline;
+		public final int index;
+		public final List<Integer> qual;
+		public final List<Integer> rejected;
+		public final BigInteger secret1;
+		public final BigInteger secret2;
+		public final BigInteger publicVal;
+		// some dealers were still undecided when the snapshot was taken
+		public final boolean partial;
+
+		Snapshot(QualPipeline pipeline, int index, List<Integer> qual, List<Integer> rejected, BigInteger secret1,
+				BigInteger secret2, BigInteger publicVal, boolean partial) {
+			this.pipeline = pipeline;
+			this.index = index;
+			this.qual = qual;
+			this.rejected = rejected;
+			this.secret1 = secret1;
+			this.secret2 = secret2;
+			this.publicVal = publicVal;
+			this.partial = partial;
+		}
+
+		// only for a snapshot taken after every dealer was decided
+		public KeyShare keyShare() {
+			if(partial) {
+				throw new IllegalStateException("snapshot taken before every dealer was decided; pass the agreed QUAL");
+			}
+			return new KeyShare(index, secret1, secret2, publicVal, qual);
+		}
+
+		// sums over agreedQual, every dealer of which must have qualified in this snapshot
+		public KeyShare keyShare(List<Integer> agreedQual) {
+			List<Integer> sorted = agreedQual.stream().sorted().distinct().collect(Collectors.toList());
+			if(!qual.containsAll(sorted)) {
+				throw new IllegalArgumentException("agreed QUAL has dealers that did not qualify here");
+			}
+			return pipeline.keyShare(sorted);
+		}
+	}
+
+	private final PerdersonVssFactory factory;
+	private final Executor executor;
+	private final Group group;
+	private final BigInteger q;
+	private final int hostIndex;
+	private final int n;
+	private final int required;
+	private final long start = System.nanoTime();
+	private final CompletableFuture<Snapshot> ready = new CompletableFuture<>();
+	private final boolean[] accepted;
+	private final BigInteger[] shares1;
+	private final BigInteger[] shares2;
+	private final BigInteger[] publicVals1;
+	private final TreeSet<Integer> qual = new TreeSet<>();
+	private final TreeSet<Integer> rejected = new TreeSet<>();
+	private BigInteger secret1 = BigInteger.ZERO;
+	private BigInteger secret2 = BigInteger.ZERO;
+	private BigInteger publicVal;
+
+	QualPipeline(PerdersonVssFactory factory, int hostIndex, int n, int required, Duration deadline) {
+		if(required<1 || required>n) {
+			throw new IllegalArgumentException("required dealers out of range: "+required);
+		}
+		this.factory = factory;
+		this.executor = factory.getScheduler();
+		this.group = factory.getParams().getGroup();
+		this.q = factory.getParams().getQ();
+		this.hostIndex = hostIndex;
+		this.n = n;
+		this.required = required;
+		this.accepted = new boolean[n];
+		this.shares1 = new BigInteger[n];
+		this.shares2 = new BigInteger[n];
+		this.publicVals1 = new BigInteger[n];
+		this.publicVal = group.identity();
+		if(deadline!=null) {
+			CompletableFuture.delayedExecutor(deadline.toNanos(), TimeUnit.NANOSECONDS, executor)
+					.execute(()-> complete(snapshot()));
+		}
+	}
+
+	// a dealing held in this process
+	public void accept(int dealer, PerdersonVss dealing) {
+		accept(dealer, dealing.shares1.get(hostIndex), dealing.shares2.get(hostIndex), dealing.publicVals1, dealing.publicVals);
+	}
+
+	/**
+	 * Dealer's share pair for this recipient, its commitments to the first
+	 * polynomial and the combined commitments g^a h^b. Repeated dealers are ignored.
+	 */
+	public void accept(int dealer, BigInteger share1, BigInteger share2, List<BigInteger> publicVals1, List<BigInteger> publicVals) {
+		if(dealer<0 || dealer>=n) {
+			throw new IllegalArgumentException("dealer out of range: "+dealer);
+		}
+		synchronized(this) {
+			if(accepted[dealer]) {
+				return;
+			}
+			accepted[dealer] = true;
+		}
+		executor.execute(()-> {
+			boolean valid;
+			try {
+				valid = !publicVals1.isEmpty() && factory.verifyDealing(dealer, hostIndex, share1, share2, publicVals);
+			} catch(RuntimeException e) {
+				valid = false;
+			}
+			decided(dealer, valid, share1, share2, valid ? publicVals1.get(0) : null);
+		});
+	}
+
+	// the dealer's frames could not be decoded or never arrived intact
+	public void reject(int dealer) {
+		if(dealer<0 || dealer>=n) {
+			throw new IllegalArgumentException("dealer out of range: "+dealer);
+		}
+		synchronized(this) {
+			if(accepted[dealer]) {
+				return;
+			}
+			accepted[dealer] = true;
+		}
+		decided(dealer, false, null, null, null);
+	}
+
+	private void decided(int dealer, boolean valid, BigInteger share1, BigInteger share2, BigInteger publicVal1) {
+		Snapshot done = null;
+		synchronized(this) {
+			if(valid) {
+				qual.add(dealer);
+				shares1[dealer] = share1;
+				shares2[dealer] = share2;
+				publicVals1[dealer] = publicVal1;
+				secret1 = secret1.add(share1).mod(q);
+				secret2 = secret2.add(share2).mod(q);
+				publicVal = group.mul(publicVal, publicVal1);
+			} else {
+				rejected.add(dealer);
+			}
+			if(!ready.isDone() && (qual.size()>=required || qual.size()+rejected.size()==n)) {
+				done = snapshot();
+			}
+		}
+		if(done!=null) {
+			complete(done);
+		}
+	}
+
+	private void complete(Snapshot snapshot) {
+		if(ready.complete(snapshot)) {
+			factory.getMetrics().phaseCompleted(Phase.QUAL, System.nanoTime()-start);
+		}
+	}
+
+	// completes with the first snapshot that meets the requirement, or the one taken at the deadline;
+	// it is partial unless all n dealers were decided by then
+	public CompletableFuture<Snapshot> ready() {
+		return ready;
+	}
+
+	public synchronized Snapshot snapshot() {
+		return new Snapshot(this, hostIndex, List.copyOf(qual), List.copyOf(rejected), secret1, secret2, publicVal,
+				qual.size()+rejected.size()<n);
+	}
+
+	private synchronized KeyShare keyShare(List<Integer> agreedQual) {
+		BigInteger sum1 = agreedQual.stream().map(j-> shares1[j]).reduce(BigInteger.ZERO, BigInteger::add).mod(q);
+		BigInteger sum2 = agreedQual.stream().map(j-> shares2[j]).reduce(BigInteger.ZERO, BigInteger::add).mod(q);
+		BigInteger sumPublicVal = group.product(agreedQual.stream().map(j-> publicVals1[j]).collect(Collectors.toList()));
+		return new KeyShare(hostIndex, sum1, sum2, sumPublicVal, agreedQual);
+	}
+
+	// dealers neither verified nor rejected yet
+	public synchronized List<Integer> pending() {
+		return IntStream.range(0,n)
+				.filter(j-> !qual.contains(j) && !rejected.contains(j))
+				.boxed()
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,245 @@
+package dkg;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Dense (row, column) store of non-negative values, each kept as a fixed number of
+ * 64-bit limbs in one contiguous long[]. Rows are dealers, columns recipients (or
+ * commitment indices); row and column views decode on access and write through.
+ */
+public final class ShareMatrix {
+	private final int rows;
+	private final int cols;
+	private final int width;
+	private final long[] limbs;
+
+	public ShareMatrix(int rows, int cols, int bits) {
+		this.rows = rows;
+		this.cols = cols;
+		this.width = Math.max(1, (bits+63)/64);
+		long size = (long)rows*cols*width;
+		if(size>Integer.MAX_VALUE-8) {
+			throw new IllegalArgumentException("matrix too large: "+rows+"x"+cols+" of "+bits+" bits");
+		}
+		this.limbs = new long[(int)size];
+	}
+
+	public int rows() {
+		return rows;
+	}
+
+	public int cols() {
+		return cols;
+	}
+
+	private int offset(int row, int col) {
+		if(row<0 || row>=rows || col<0 || col>=cols) {
+			throw new IndexOutOfBoundsException("("+row+","+col+") outside "+rows+"x"+cols);
+		}
+		return (row*cols+col)*width;
+	}
+
+	public BigInteger get(int row, int col) {
+		int off = offset(row, col);
+		byte[] magnitude = new byte[width*8];
+		for(int k=0; k<width; k++) {
+			long limb = limbs[off+k];
+			int pos = magnitude.length-8*(k+1);
+			for(int b=7; b>=0; b--) {
+				magnitude[pos+b] = (byte)limb;
+				limb >>>= 8;
+			}
+		}
+		return new BigInteger(1, magnitude);
+	}
+
+	public void set(int row, int col, BigInteger value) {
+		if(value.signum()<0 || value.bitLength()>width*64) {
+			throw new IllegalArgumentException("value does not fit in "+width*64+" bits");
+		}
+		int off = offset(row, col);
+		byte[] bytes = value.toByteArray();
+		for(int k=0; k<width; k++) {
+			long limb = 0;
+			for(int b=0; b<8; b++) {
+				int pos = bytes.length-1-(8*k+b);
+				if(pos>=0) {
+					limb |= (bytes[pos]&0xffL)<<(8*b);
+				}
+			}
+			limbs[off+k] = limb;
+		}
+	}
+
+	public Row row(int row) {
+		return new Row(row, 0, cols);
+	}
+
+	// columns [from, to) of one row
+	public Row row(int row, int from, int to) {
+		return new Row(row, from, to-from);
+	}
+
+	public Column column(int col) {
+		return new Column(col, 0, rows);
+	}
+
+	// sum of the entries of one column over the given rows, reduced once at the end
+	public BigInteger sumColumn(int col, List<Integer> rowIndices, BigInteger modulus) {
+		long[] acc = new long[width+2];
+		for(int row: rowIndices) {
+			int off = offset(row, col);
+			long carry = 0;
+			for(int k=0; k<width; k++) {
+				long a = acc[k];
+				long s = a+limbs[off+k];
+				long c1 = Long.compareUnsigned(s, a)<0 ? 1 : 0;
+				long s2 = s+carry;
+				long c2 = Long.compareUnsigned(s2, s)<0 ? 1 : 0;
+				acc[k] = s2;
+				carry = c1+c2;
+			}
+			for(int k=width; carry!=0 && k<acc.length; k++) {
+				acc[k] += carry;
+				carry = acc[k]==0 ? 1 : 0;
+			}
+		}
+		byte[] magnitude = new byte[acc.length*8];
+		for(int k=0; k<acc.length; k++) {
+			long limb = acc[k];
+			int pos = magnitude.length-8*(k+1);
+			for(int b=7; b>=0; b--) {
+				magnitude[pos+b] = (byte)limb;
+				limb >>>= 8;
+			}
+		}
+		return new BigInteger(1, magnitude).mod(modulus);
+	}
+
+	/**
+	 * Column col across a list of rows. When the rows are consecutive rows of one
+	 * matrix the result is a view of that matrix' column, otherwise it reads through
+	 * the rows one by one; neither copies.
+	 */
+	public static List<BigInteger> columnOf(int size, IntFunction<List<BigInteger>> rowOf, int col) {
+		if(size>0 && rowOf.apply(0) instanceof Row) {
+			Row first = (Row)rowOf.apply(0);
+			ShareMatrix matrix = first.matrix();
+			boolean contiguous = first.row+size<=matrix.rows;
+			for(int i=1; contiguous && i<size; i++) {
+				List<BigInteger> row = rowOf.apply(i);
+				contiguous = row instanceof Row
+						&& ((Row)row).matrix()==matrix
+						&& ((Row)row).row==first.row+i
+						&& ((Row)row).from==first.from;
+			}
+			if(contiguous) {
+				return matrix.new Column(first.from+col, first.row, size);
+			}
+		}
+		return new AbstractViewList(size) {
+			@Override
+			public BigInteger get(int i) {
+				return rowOf.apply(i).get(col);
+			}
+		};
+	}
+
+	// sum over the given indices of a column, mod modulus
+	public static BigInteger sum(List<BigInteger> column, List<Integer> indices, BigInteger modulus) {
+		if(column instanceof Column) {
+			Column c = (Column)column;
+			return c.matrix().sumColumn(c.col, indices.stream().map(i-> c.from+i).collect(Collectors.toList()), modulus);
+		}
+		return indices.stream()
+				.map(column::get)
+				.reduce(BigInteger.ZERO, BigInteger::add)
+				.mod(modulus);
+	}
+
+	private abstract static class AbstractViewList extends AbstractList<BigInteger> implements RandomAccess {
+		private final int size;
+
+		AbstractViewList(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	public final class Row extends AbstractViewList {
+		private final int row;
+		private final int from;
+
+		private Row(int row, int from, int size) {
+			super(size);
+			this.row = row;
+			this.from = from;
+		}
+
+		public ShareMatrix matrix() {
+			return ShareMatrix.this;
+		}
+
+		public int index() {
+			return row;
+		}
+
+		@Override
+		public BigInteger get(int col) {
+			return ShareMatrix.this.get(row, from+checkIndex(col));
+		}
+
+		@Override
+		public BigInteger set(int col, BigInteger value) {
+			BigInteger old = get(col);
+			ShareMatrix.this.set(row, from+col, value);
+			return old;
+		}
+
+		private int checkIndex(int i) {
+			if(i<0 || i>=size()) {
+				throw new IndexOutOfBoundsException(i);
+			}
+			return i;
+		}
+	}
+
+	public final class Column extends AbstractViewList {
+		private final int col;
+		private final int from;
+
+		private Column(int col, int from, int size) {
+			super(size);
+			this.col = col;
+			this.from = from;
+		}
+
+		public ShareMatrix matrix() {
+			return ShareMatrix.this;
+		}
+
+		@Override
+		public BigInteger get(int row) {
+			if(row<0 || row>=size()) {
+				throw new IndexOutOfBoundsException(row);
+			}
+			return ShareMatrix.this.get(from+row, col);
+		}
+
+		@Override
+		public BigInteger set(int row, BigInteger value) {
+			BigInteger old = get(row);
+			ShareMatrix.this.set(from+row, col, value);
+			return old;
+		}
+	}
+}
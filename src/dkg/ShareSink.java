@@ -0,0 +1,9 @@
+package dkg;
+
+import java.math.BigInteger;
+
+// receives a dealer's share pair for one recipient, recipients being 0-based
+@FunctionalInterface
+public interface ShareSink {
+	void accept(int recipient, BigInteger share1, BigInteger share2);
+}
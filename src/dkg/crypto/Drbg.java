@@ -0,0 +1,103 @@
+package dkg.crypto;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.ChaCha20ParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * One ChaCha20 keystream, read in 512 byte blocks. Not thread safe: every thread or
+ * dealer takes its own stream from a {@link DrbgSource}. Before the 32 bit block
+ * counter runs out the stream rekeys itself from its own output.
+ */
+public final class Drbg {
+	private static final int BUFFER = 512;
+	// refills per key, well below 2^32 ChaCha20 blocks
+	private static final long REKEY_AFTER = 1L<<24;
+	private static final int KEY_BYTES = 32;
+
+	private final Cipher cipher;
+	private final byte[] nonce;
+	private final byte[] zeros = new byte[BUFFER];
+	private final byte[] buffer = new byte[BUFFER];
+	private int position = BUFFER;
+	private long refills;
+
+	Drbg(byte[] key, byte[] nonce) {
+		this.nonce = nonce.clone();
+		try {
+			this.cipher = Cipher.getInstance("ChaCha20");
+		} catch(GeneralSecurityException e) {
+			throw new IllegalStateException("ChaCha20 is not available", e);
+		}
+		init(key);
+	}
+
+	private void init(byte[] key) {
+		try {
+			cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "ChaCha20"), new ChaCha20ParameterSpec(nonce, 0));
+		} catch(GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void refill() {
+		if(++refills==REKEY_AFTER) {
+			byte[] key = new byte[KEY_BYTES];
+			nextBytes(key);
+			init(key);
+			refills = 0;
+		}
+		try {
+			cipher.update(zeros, 0, BUFFER, buffer, 0);
+		} catch(ShortBufferException e) {
+			throw new IllegalStateException(e);
+		}
+		position = 0;
+	}
+
+	public void nextBytes(byte[] out) {
+		for(int offset=0; offset<out.length; ) {
+			if(position==BUFFER) {
+				refill();
+			}
+			int length = Math.min(BUFFER-position, out.length-offset);
+			System.arraycopy(buffer, position, out, offset, length);
+			position += length;
+			offset += length;
+		}
+	}
+
+	public long nextLong() {
+		byte[] bytes = new byte[8];
+		nextBytes(bytes);
+		long value = 0;
+		for(byte b: bytes) {
+			value = value<<8 | (b&0xff);
+		}
+		return value;
+	}
+
+	// uniform non-negative integer below 2^bits
+	public BigInteger nextBits(int bits) {
+		byte[] bytes = new byte[(bits+7)/8];
+		nextBytes(bytes);
+		if(bits%8!=0) {
+			bytes[0] &= (byte)((1<<(bits%8))-1);
+		}
+		return new BigInteger(1, bytes);
+	}
+
+	// uniform up to 2^-128 in [0, q)
+	public BigInteger nextScalar(BigInteger q) {
+		return nextBits(q.bitLength()+128).mod(q);
+	}
+
+	// uniform up to 2^-128 in [1, q), for nonces
+	public BigInteger nextNonzeroScalar(BigInteger q) {
+		return nextBits(q.bitLength()+128).mod(q.subtract(BigInteger.ONE)).add(BigInteger.ONE);
+	}
+}
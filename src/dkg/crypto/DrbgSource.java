@@ -0,0 +1,68 @@
+package dkg.crypto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out independent {@link Drbg} streams under one 256 bit key, each stream
+ * with its own ChaCha20 nonce. Numbered streams, one per dealer say, are the same
+ * for the same seed and number; per-thread streams are numbered in the order
+ * threads first ask for one. Nothing is shared between streams once they exist,
+ * so no draw takes a lock.
+ *
+ * A seeded source is for reproducible benchmarks and tests only: anyone who knows
+ * the seed knows every coefficient and nonce.
+ */
+public final class DrbgSource {
+	private static final int NUMBERED = 0;
+	private static final int ALLOCATED = 1;
+
+	private final byte[] key;
+	private final boolean deterministic;
+	private final AtomicLong allocated = new AtomicLong();
+	private final ThreadLocal<Drbg> local = ThreadLocal.withInitial(this::next);
+
+	private DrbgSource(byte[] key, boolean deterministic) {
+		this.key = key;
+		this.deterministic = deterministic;
+	}
+
+	public static DrbgSource fromEntropy() {
+		byte[] key = new byte[32];
+		new SecureRandom().nextBytes(key);
+		return new DrbgSource(key, false);
+	}
+
+	public static DrbgSource seeded(long seed) {
+		return seeded(Long.toString(seed).getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static DrbgSource seeded(byte[] seed) {
+		return new DrbgSource(Transcript.start("dkg/drbg/seed").absorb(seed).squeeze(32), true);
+	}
+
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
+	// the same stream for the same seed and number
+	public Drbg stream(long number) {
+		return new Drbg(key, nonce(NUMBERED, number));
+	}
+
+	// a fresh stream no other call returns
+	public Drbg next() {
+		return new Drbg(key, nonce(ALLOCATED, allocated.getAndIncrement()));
+	}
+
+	// the calling thread's stream
+	public Drbg local() {
+		return local.get();
+	}
+
+	private static byte[] nonce(int domain, long number) {
+		return ByteBuffer.allocate(12).putInt(domain).putLong(number).array();
+	}
+}
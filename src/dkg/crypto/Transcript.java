@@ -0,0 +1,116 @@
+package dkg.crypto;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fiat-Shamir transcript over SHA-256. A transcript starts with a domain label and
+ * absorbs values one by one, each behind a 4 byte length, straight into the digest.
+ * Output is squeezed as SHA-256(seed || counter) blocks from the transcript's
+ * digest, which gives hashes of any length and scalars with 128 bits of slack
+ * before the reduction mod q.
+ *
+ * Digests are per thread, so one thread can only fill one transcript at a time;
+ * start the next one after the previous was squeezed.
+ */
+public final class Transcript {
+	private static final int DIGEST_BYTES = 32;
+	private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(Transcript::sha256);
+
+	private final MessageDigest digest;
+
+	private Transcript(MessageDigest digest) {
+		this.digest = digest;
+	}
+
+	public static Transcript start(String domain) {
+		MessageDigest digest = digests.get();
+		digest.reset();
+		return new Transcript(digest).absorb(domain.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public Transcript absorb(byte[] bytes) {
+		length(bytes.length);
+		digest.update(bytes);
+		return this;
+	}
+
+	// two's complement bytes as produced by toByteArray
+	public Transcript absorb(BigInteger value) {
+		return absorb(value.toByteArray());
+	}
+
+	public Transcript absorb(BigInteger... values) {
+		for(BigInteger value: values) {
+			absorb(value);
+		}
+		return this;
+	}
+
+	// the buffer's remaining bytes; its position is left unchanged
+	public Transcript absorb(ByteBuffer buffer) {
+		length(buffer.remaining());
+		digest.update(buffer.duplicate());
+		return this;
+	}
+
+	public Transcript absorb(long value) {
+		length(8);
+		for(int shift=56; shift>=0; shift-=8) {
+			digest.update((byte)(value>>>shift));
+		}
+		return this;
+	}
+
+	private void length(int length) {
+		digest.update((byte)(length>>>24));
+		digest.update((byte)(length>>>16));
+		digest.update((byte)(length>>>8));
+		digest.update((byte)length);
+	}
+
+	// length bytes of output; ends the transcript
+	public byte[] squeeze(int length) {
+		byte[] seed = digest.digest();
+		byte[] out = new byte[length];
+		byte[] block = new byte[DIGEST_BYTES];
+		try {
+			for(int counter=0, offset=0; offset<length; counter++, offset+=DIGEST_BYTES) {
+				digest.update(seed);
+				digest.update((byte)(counter>>>8));
+				digest.update((byte)counter);
+				digest.digest(block, 0, DIGEST_BYTES);
+				System.arraycopy(block, 0, out, offset, Math.min(DIGEST_BYTES, length-offset));
+			}
+		} catch(DigestException e) {
+			throw new IllegalStateException(e);
+		}
+		return out;
+	}
+
+	// uniform up to 2^-128 in [0, q); ends the transcript
+	public BigInteger challenge(BigInteger q) {
+		return new BigInteger(1, squeeze((q.bitLength()+128+7)/8)).mod(q);
+	}
+
+	// non-negative integer of the given bit length; ends the transcript
+	public BigInteger squeezeBits(int bits) {
+		byte[] bytes = squeeze((bits+7)/8);
+		if(bits%8!=0) {
+			bytes[0] &= (byte)((1<<(bits%8))-1);
+		}
+		return new BigInteger(1, bytes);
+	}
+}
@@ -1,5 +1,14 @@
 package dkg.exception;
 
-public class DkgException {
-	
-}
\ No newline at end of file
+// a protocol step failed in a way the caller can handle, e.g. bad input from another party
+public class DkgException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public DkgException(String message) {
+		super(message);
+	}
+
+	public DkgException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,21 @@
+package dkg.exception;
+
+// a ciphertext that is malformed or whose proof does not verify
+public class InvalidCiphertextException extends DkgException {
+	private static final long serialVersionUID = 1L;
+	private final int index;
+
+	public InvalidCiphertextException(String message) {
+		this(-1, message);
+	}
+
+	public InvalidCiphertextException(int index, String message) {
+		super(message);
+		this.index = index;
+	}
+
+	// position in the batch, -1 for a single ciphertext
+	public int index() {
+		return index;
+	}
+}
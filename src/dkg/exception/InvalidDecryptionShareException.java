@@ -0,0 +1,16 @@
+package dkg.exception;
+
+// a participant's decryption share whose proof does not verify
+public class InvalidDecryptionShareException extends DkgException {
+	private static final long serialVersionUID = 1L;
+	private final int participant;
+
+	public InvalidDecryptionShareException(int participant, String message) {
+		super(message);
+		this.participant = participant;
+	}
+
+	public int participant() {
+		return participant;
+	}
+}
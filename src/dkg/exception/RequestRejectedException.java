@@ -0,0 +1,10 @@
+package dkg.exception;
+
+// a request not taken on because the service's queue is full or the service is closed
+public class RequestRejectedException extends DkgException {
+	private static final long serialVersionUID = 1L;
+
+	public RequestRejectedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,206 @@
+package dkg.exec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs DKG computation on a dedicated, sized ForkJoinPool instead of the JVM-wide
+ * common pool. Parallel work started from one of the pool's threads, nested calls
+ * included, stays in the pool, so a DKG never competes with other users of the
+ * common pool for threads. Work for a threshold t below the sequential threshold,
+ * and all work on a single-thread scheduler, runs on the calling thread: splitting
+ * a handful of exponentiations costs more than it saves.
+ *
+ * The shared scheduler uses all but one processor, at least one; the system
+ * properties dkg.parallelism and dkg.sequentialThreshold override its sizing.
+ */
+public final class DkgScheduler implements Executor, AutoCloseable {
+	public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 4;
+	public static final int DEFAULT_TILE = 8;
+	private static final AtomicInteger pools = new AtomicInteger();
+	private static DkgScheduler shared;
+
+	// null for the sequential scheduler
+	private final ForkJoinPool pool;
+	private final boolean ownsPool;
+	private final int sequentialThreshold;
+	private final int tile;
+
+	public DkgScheduler(int parallelism) {
+		this(parallelism, DEFAULT_SEQUENTIAL_THRESHOLD, DEFAULT_TILE);
+	}
+
+	public DkgScheduler(int parallelism, int sequentialThreshold, int tile) {
+		this(newPool(parallelism), true, sequentialThreshold, tile);
+	}
+
+	// runs on a pool owned by the caller; close leaves it running
+	public DkgScheduler(ForkJoinPool pool, int sequentialThreshold, int tile) {
+		this(pool, false, sequentialThreshold, tile);
+	}
+
+	private DkgScheduler(ForkJoinPool pool, boolean ownsPool, int sequentialThreshold, int tile) {
+		if(tile<1) {
+			throw new IllegalArgumentException("tile must be positive");
+		}
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+		this.sequentialThreshold = sequentialThreshold;
+		this.tile = tile;
+	}
+
+	public static synchronized DkgScheduler shared() {
+		if(shared==null) {
+			int parallelism = Integer.getInteger("dkg.parallelism", Math.max(1, Runtime.getRuntime().availableProcessors()-1));
+			int threshold = Integer.getInteger("dkg.sequentialThreshold", DEFAULT_SEQUENTIAL_THRESHOLD);
+			shared = new DkgScheduler(parallelism, threshold, DEFAULT_TILE);
+		}
+		return shared;
+	}
+
+	// everything on the calling thread
+	public static DkgScheduler sequential() {
+		return new DkgScheduler(null, false, Integer.MAX_VALUE, DEFAULT_TILE);
+	}
+
+	private static ForkJoinPool newPool(int parallelism) {
+		if(parallelism<1) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		int id = pools.incrementAndGet();
+		return new ForkJoinPool(parallelism, p-> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			thread.setName("dkg-"+id+"-worker-"+thread.getPoolIndex());
+			thread.setDaemon(true);
+			return thread;
+		}, null, false);
+	}
+
+	public int parallelism() {
+		return pool==null ? 1 : pool.getParallelism();
+	}
+
+	public int tile() {
+		return tile;
+	}
+
+	// whether work for threshold t is split across the pool
+	public boolean isParallel(int t) {
+		return parallelism()>1 && t>=sequentialThreshold;
+	}
+
+	// task(0..count-1) in order
+	public <T> List<T> map(int t, int count, IntFunction<T> task) {
+		if(count<=1 || !isParallel(t)) {
+			List<T> results = new ArrayList<>(count);
+			for(int i=0; i<count; i++) {
+				results.add(task.apply(i));
+			}
+			return results;
+		}
+		return call(()-> IntStream.range(0,count)
+				.parallel()
+				.mapToObj(task)
+				.collect(Collectors.toList()));
+	}
+
+	public void forEach(int t, int count, IntConsumer task) {
+		map(t, count, i-> {
+			task.accept(i);
+			return null; });
+	}
+
+	// indices in 0..count-1 that pass, ascending
+	public List<Integer> filter(int t, int count, IntPredicate predicate) {
+		List<Boolean> passed = map(t, count, i-> predicate.test(i));
+		return IntStream.range(0,count)
+				.filter(passed::get)
+				.boxed()
+				.collect(Collectors.toList());
+	}
+
+	// runs task inside the pool, or in place when already on one of its threads
+	public <T> T call(Supplier<T> task) {
+		if(pool==null || ForkJoinTask.getPool()==pool) {
+			return task.get();
+		}
+		return pool.submit(task::get).join();
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if(pool==null) {
+			command.run();
+		} else {
+			pool.execute(command);
+		}
+	}
+
+	/**
+	 * Splits the dealers x recipients grid into blocks of at most dealerBlock x
+	 * recipientBlock pairs, dealer-major.
+	 */
+	public List<Tile> tiles(int dealers, int recipients, int dealerBlock, int recipientBlock) {
+		List<Tile> tiles = new ArrayList<>();
+		for(int d=0; d<dealers; d+=dealerBlock) {
+			for(int r=0; r<recipients; r+=recipientBlock) {
+				tiles.add(new Tile(d, Math.min(dealers, d+dealerBlock), r, Math.min(recipients, r+recipientBlock)));
+			}
+		}
+		return tiles;
+	}
+
+	// square tiles of the configured size
+	public List<Tile> tiles(int dealers, int recipients) {
+		return tiles(dealers, recipients, tile, tile);
+	}
+
+	// dealers [dealerFrom, dealerTo) x recipients [recipientFrom, recipientTo)
+	public static final class Tile {
+		public final int dealerFrom;
+		public final int dealerTo;
+		public final int recipientFrom;
+		public final int recipientTo;
+
+		Tile(int dealerFrom, int dealerTo, int recipientFrom, int recipientTo) {
+			this.dealerFrom = dealerFrom;
+			this.dealerTo = dealerTo;
+			this.recipientFrom = recipientFrom;
+			this.recipientTo = recipientTo;
+		}
+
+		// {dealer, recipient} pairs of this tile
+		public List<int[]> pairs() {
+			List<int[]> pairs = new ArrayList<>((dealerTo-dealerFrom)*(recipientTo-recipientFrom));
+			for(int j=dealerFrom; j<dealerTo; j++) {
+				for(int i=recipientFrom; i<recipientTo; i++) {
+					pairs.add(new int[] {j,i});
+				}
+			}
+			return pairs;
+		}
+	}
+
+	@Override
+	public void close() {
+		if(ownsPool) {
+			pool.shutdown();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DkgScheduler[parallelism="+parallelism()+", sequential below t="+sequentialThreshold+", tile="+tile+"]";
+	}
+}
@@ -0,0 +1,453 @@
+package dkg.group;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Prime-order short Weierstrass curve y^2 = x^3 + ax + b over F_p with cofactor 1.
+ * An affine point (x, y) is represented as the BigInteger (x << |p|) | y and the
+ * point at infinity as 0, which is never a curve point since b != 0 is required.
+ * Arithmetic runs in Jacobian coordinates over {@link Fp256} limbs, so a chain of
+ * additions and doublings needs a single field inversion at the end. Precomputed
+ * tables are normalized to affine with one batched inversion and consumed by mixed
+ * additions. The field is limited to 256 bits.
+ */
+public final class EcGroup implements Group {
+
+	private static final long[] ZERO = new long[Fp256.LIMBS];
+	private static final int FIXED_WINDOW = 8;
+	private static final int STRAUS_WINDOW = 4;
+	private static final int PIPPENGER_THRESHOLD = 32;
+	private static EcGroup secp256k1;
+
+	private final BigInteger p;
+	private final BigInteger a;
+	private final BigInteger b;
+	private final BigInteger n;
+	private final BigInteger generator;
+	private final int fieldBits;
+	private final BigInteger yMask;
+	private final boolean aIsZero;
+	private final Fp256 f;
+	private final long[] aMont;
+	private final Map<BigInteger, FixedBase> fixedBases = new ConcurrentHashMap<>();
+
+	// n is the prime order of the curve, (gx, gy) a point on it
+	public EcGroup(BigInteger p, BigInteger a, BigInteger b, BigInteger n, BigInteger gx, BigInteger gy) {
+		if(b.mod(p).signum()==0) {
+			throw new IllegalArgumentException("b must be non-zero");
+		}
+		this.p = p;
+		this.a = a.mod(p);
+		this.b = b.mod(p);
+		this.n = n;
+		this.fieldBits = p.bitLength();
+		this.yMask = BigInteger.ONE.shiftLeft(fieldBits).subtract(BigInteger.ONE);
+		this.aIsZero = this.a.signum()==0;
+		this.f = new Fp256(p);
+		this.aMont = f.toMont(this.a);
+		this.generator = pack(gx, gy);
+		if(!contains(generator) || generator.signum()==0) {
+			throw new IllegalArgumentException("generator is not on the curve");
+		}
+	}
+
+	public static synchronized EcGroup secp256k1() {
+		if(secp256k1==null) {
+			secp256k1 = new EcGroup(
+					new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16),
+					BigInteger.ZERO,
+					BigInteger.valueOf(7),
+					new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16),
+					new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16),
+					new BigInteger("483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16));
+		}
+		return secp256k1;
+	}
+
+	public BigInteger generator() {
+		return generator;
+	}
+
+	public BigInteger fieldPrime() {
+		return p;
+	}
+
+	@Override
+	public BigInteger order() {
+		return n;
+	}
+
+	@Override
+	public BigInteger identity() {
+		return BigInteger.ZERO;
+	}
+
+	@Override
+	public BigInteger mul(BigInteger x, BigInteger y) {
+		if(y.signum()==0) {
+			return x;
+		}
+		return toElement(addAffine(toJacobian(x), f.toMont(y.shiftRight(fieldBits)), f.toMont(y.and(yMask))));
+	}
+
+	// accumulates in Jacobian coordinates, one inversion at the end
+	@Override
+	public BigInteger product(List<BigInteger> elements) {
+		long[][] acc = infinity();
+		for(BigInteger element: elements) {
+			if(element.signum()!=0) {
+				acc = addAffine(acc, f.toMont(element.shiftRight(fieldBits)), f.toMont(element.and(yMask)));
+			}
+		}
+		return toElement(acc);
+	}
+
+	@Override
+	public BigInteger inverse(BigInteger x) {
+		if(x.signum()==0) {
+			return x;
+		}
+		BigInteger y = x.and(yMask);
+		return y.signum()==0 ? x : pack(x.shiftRight(fieldBits), p.subtract(y));
+	}
+
+	@Override
+	public BigInteger pow(BigInteger base, BigInteger exponent) {
+		return toElement(straus(List.of(base), new BigInteger[] {exponent.mod(n)}));
+	}
+
+	@Override
+	public Function<BigInteger,BigInteger> fixedBase(BigInteger base) {
+		return fixedBases.computeIfAbsent(base, FixedBase::new);
+	}
+
+	@Override
+	public Function<BigInteger,BigInteger> newFixedBase(BigInteger base) {
+		return new FixedBase(base);
+	}
+
+	// base^(d*256^i) for every byte position i and digit d, in affine form
+	private final class FixedBase implements Function<BigInteger,BigInteger> {
+		private final long[][] xs;
+		private final long[][] ys;
+		private final int digits = 1<<FIXED_WINDOW;
+
+		FixedBase(BigInteger base) {
+			int rows = (n.bitLength()+FIXED_WINDOW-1)/FIXED_WINDOW;
+			long[][][] points = new long[rows*digits][][];
+			long[][] rowBase = toJacobian(base);
+			for(int i=0; i<rows; i++) {
+				points[i*digits] = infinity();
+				points[i*digits+1] = rowBase;
+				for(int d=2; d<digits; d++) {
+					points[i*digits+d] = add(points[i*digits+d-1], rowBase);
+				}
+				rowBase = add(points[i*digits+digits-1], rowBase);
+			}
+			long[][][] affine = normalize(points);
+			xs = affine[0];
+			ys = affine[1];
+		}
+
+		@Override
+		public BigInteger apply(BigInteger exponent) {
+			BigInteger e = exponent.mod(n);
+			long[][] r = infinity();
+			for(int i=0, rows=xs.length/digits; i<rows; i++) {
+				int d = digit(e, i, FIXED_WINDOW);
+				if(d!=0 && xs[i*digits+d]!=null) {
+					r = addAffine(r, xs[i*digits+d], ys[i*digits+d]);
+				}
+			}
+			return toElement(r);
+		}
+	}
+
+	@Override
+	public BigInteger multiExp(List<BigInteger> bases, List<BigInteger> exponents) {
+		if(bases.size()!=exponents.size()) {
+			throw new IllegalArgumentException("bases and exponents differ in length");
+		}
+		BigInteger[] e = new BigInteger[bases.size()];
+		for(int i=0; i<e.length; i++) {
+			e[i] = exponents.get(i).mod(n);
+		}
+		return toElement(bases.size()<PIPPENGER_THRESHOLD ? straus(bases, e) : pippenger(bases, e));
+	}
+
+	// shared doublings, one 4 bit window table per base
+	private long[][] straus(List<BigInteger> bases, BigInteger[] e) {
+		int k = bases.size();
+		int digits = 1<<STRAUS_WINDOW;
+		long[][][] points = new long[k*digits][][];
+		for(int i=0; i<k; i++) {
+			long[][] base = toJacobian(bases.get(i));
+			points[i*digits] = infinity();
+			points[i*digits+1] = base;
+			for(int d=2; d<digits; d++) {
+				points[i*digits+d] = add(points[i*digits+d-1], base);
+			}
+		}
+		long[][][] table = normalize(points);
+		int windows = (n.bitLength()+STRAUS_WINDOW-1)/STRAUS_WINDOW;
+		long[][] r = infinity();
+		for(int w=windows-1; w>=0; w--) {
+			for(int s=0; s<STRAUS_WINDOW; s++) {
+				r = dbl(r);
+			}
+			for(int i=0; i<k; i++) {
+				int d = digit(e[i], w, STRAUS_WINDOW);
+				if(d!=0 && table[0][i*digits+d]!=null) {
+					r = addAffine(r, table[0][i*digits+d], table[1][i*digits+d]);
+				}
+			}
+		}
+		return r;
+	}
+
+	// bucket method: per window, every base is added once into the bucket of its digit
+	private long[][] pippenger(List<BigInteger> bases, BigInteger[] e) {
+		int k = bases.size();
+		int c = Math.max(4, Math.min(16, 31-Integer.numberOfLeadingZeros(k)-2));
+		long[][] xs = new long[k][];
+		long[][] ys = new long[k][];
+		for(int i=0; i<k; i++) {
+			if(bases.get(i).signum()!=0) {
+				xs[i] = f.toMont(bases.get(i).shiftRight(fieldBits));
+				ys[i] = f.toMont(bases.get(i).and(yMask));
+			}
+		}
+		int windows = (n.bitLength()+c-1)/c;
+		long[][] r = infinity();
+		for(int w=windows-1; w>=0; w--) {
+			for(int s=0; s<c; s++) {
+				r = dbl(r);
+			}
+			long[][][] buckets = new long[1<<c][][];
+			for(int i=0; i<k; i++) {
+				int d = digit(e[i], w, c);
+				if(d!=0 && xs[i]!=null) {
+					buckets[d] = buckets[d]==null ? new long[][] {xs[i], ys[i], f.one()} : addAffine(buckets[d], xs[i], ys[i]);
+				}
+			}
+			// sum_d d*bucket[d] as a running sum from the top bucket down
+			long[][] running = infinity();
+			long[][] sum = infinity();
+			for(int d=buckets.length-1; d>0; d--) {
+				if(buckets[d]!=null) {
+					running = add(running, buckets[d]);
+				}
+				sum = add(sum, running);
+			}
+			r = add(r, sum);
+		}
+		return r;
+	}
+
+	@Override
+	public boolean contains(BigInteger element) {
+		if(element.signum()==0) {
+			return true;
+		}
+		if(element.signum()<0 || element.bitLength()>2*fieldBits) {
+			return false;
+		}
+		BigInteger x = element.shiftRight(fieldBits);
+		BigInteger y = element.and(yMask);
+		if(x.compareTo(p)>=0 || y.compareTo(p)>=0) {
+			return false;
+		}
+		return y.multiply(y).mod(p).equals(rhs(x));
+	}
+
+	// try-and-increment on x; square roots need p = 3 mod 4
+	@Override
+	public BigInteger hashToElement(byte[] seed) {
+		if(!p.testBit(0) || !p.testBit(1)) {
+			throw new UnsupportedOperationException("hashing to the curve needs p = 3 mod 4");
+		}
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		BigInteger sqrtExponent = p.add(BigInteger.ONE).shiftRight(2);
+		int blocks = (fieldBits+64+255)/256;
+		for(int counter=0; ; counter++) {
+			byte[] material = new byte[blocks*32];
+			for(int i=0; i<blocks; i++) {
+				digest.update("dkg-generator-h".getBytes(StandardCharsets.US_ASCII));
+				digest.update(seed);
+				digest.update(new byte[] {(byte)(counter>>>8), (byte)counter, (byte)i});
+				System.arraycopy(digest.digest(), 0, material, i*32, 32);
+			}
+			BigInteger x = new BigInteger(1, material).mod(p);
+			BigInteger rhs = rhs(x);
+			BigInteger y = rhs.modPow(sqrtExponent, p);
+			if(y.multiply(y).mod(p).equals(rhs) && y.signum()!=0) {
+				return pack(x, y);
+			}
+		}
+	}
+
+	@Override
+	public int elementBits() {
+		return 2*fieldBits;
+	}
+
+	private BigInteger rhs(BigInteger x) {
+		BigInteger rhs = x.multiply(x).multiply(x).add(b);
+		if(!aIsZero) {
+			rhs = rhs.add(a.multiply(x));
+		}
+		return rhs.mod(p);
+	}
+
+	private BigInteger pack(BigInteger x, BigInteger y) {
+		return x.shiftLeft(fieldBits).or(y);
+	}
+
+	private static int digit(BigInteger e, int window, int width) {
+		int d = 0;
+		for(int i=width-1; i>=0; i--) {
+			d = (d<<1) | (e.testBit(window*width+i) ? 1 : 0);
+		}
+		return d;
+	}
+
+	private static long[][] infinity() {
+		return new long[][] {ZERO, ZERO, ZERO};
+	}
+
+	private long[][] toJacobian(BigInteger element) {
+		if(element.signum()==0) {
+			return infinity();
+		}
+		return new long[][] {f.toMont(element.shiftRight(fieldBits)), f.toMont(element.and(yMask)), f.one()};
+	}
+
+	private BigInteger toElement(long[][] point) {
+		if(Fp256.isZero(point[2])) {
+			return BigInteger.ZERO;
+		}
+		long[] zInv = f.inv(point[2]);
+		long[] zInv2 = f.sqr(zInv);
+		return pack(f.fromMont(f.mul(point[0], zInv2)), f.fromMont(f.mul(point[1], f.mul(zInv2, zInv))));
+	}
+
+	// {xs, ys} with one inversion for the whole batch; the point at infinity maps to null entries
+	private long[][][] normalize(long[][][] points) {
+		long[][] prefix = new long[points.length][];
+		long[] acc = f.one();
+		for(int i=0; i<points.length; i++) {
+			if(!Fp256.isZero(points[i][2])) {
+				acc = f.mul(acc, points[i][2]);
+			}
+			prefix[i] = acc;
+		}
+		long[] inv = f.inv(acc);
+		long[][] xs = new long[points.length][];
+		long[][] ys = new long[points.length][];
+		for(int i=points.length-1; i>=0; i--) {
+			if(Fp256.isZero(points[i][2])) {
+				continue;
+			}
+			long[] zInv = i==0 ? inv : f.mul(inv, prefix[i-1]);
+			inv = f.mul(inv, points[i][2]);
+			long[] zInv2 = f.sqr(zInv);
+			xs[i] = f.mul(points[i][0], zInv2);
+			ys[i] = f.mul(points[i][1], f.mul(zInv2, zInv));
+		}
+		return new long[][][] {xs, ys};
+	}
+
+	// dbl-2007-bl
+	private long[][] dbl(long[][] point) {
+		if(Fp256.isZero(point[2]) || Fp256.isZero(point[1])) {
+			return infinity();
+		}
+		long[] x = point[0];
+		long[] y = point[1];
+		long[] z = point[2];
+		long[] xx = f.sqr(x);
+		long[] yy = f.sqr(y);
+		long[] yyyy = f.sqr(yy);
+		long[] zz = f.sqr(z);
+		long[] s = f.sub(f.sub(f.sqr(f.add(x, yy)), xx), yyyy);
+		s = f.add(s, s);
+		long[] m = f.add(f.add(xx, xx), xx);
+		if(!aIsZero) {
+			m = f.add(m, f.mul(aMont, f.sqr(zz)));
+		}
+		long[] x3 = f.sub(f.sqr(m), f.add(s, s));
+		long[] yyyy8 = f.add(yyyy, yyyy);
+		yyyy8 = f.add(yyyy8, yyyy8);
+		yyyy8 = f.add(yyyy8, yyyy8);
+		long[] y3 = f.sub(f.mul(m, f.sub(s, x3)), yyyy8);
+		long[] z3 = f.sub(f.sub(f.sqr(f.add(y, z)), yy), zz);
+		return new long[][] {x3, y3, z3};
+	}
+
+	// add-1998-cmo-2
+	private long[][] add(long[][] p1, long[][] p2) {
+		if(Fp256.isZero(p1[2])) {
+			return p2;
+		}
+		if(Fp256.isZero(p2[2])) {
+			return p1;
+		}
+		long[] z1z1 = f.sqr(p1[2]);
+		long[] z2z2 = f.sqr(p2[2]);
+		long[] u1 = f.mul(p1[0], z2z2);
+		long[] u2 = f.mul(p2[0], z1z1);
+		long[] s1 = f.mul(p1[1], f.mul(p2[2], z2z2));
+		long[] s2 = f.mul(p2[1], f.mul(p1[2], z1z1));
+		long[] h = f.sub(u2, u1);
+		long[] r = f.sub(s2, s1);
+		if(Fp256.isZero(h)) {
+			return Fp256.isZero(r) ? dbl(p1) : infinity();
+		}
+		long[] hh = f.sqr(h);
+		long[] hhh = f.mul(h, hh);
+		long[] v = f.mul(u1, hh);
+		long[] x3 = f.sub(f.sub(f.sqr(r), hhh), f.add(v, v));
+		long[] y3 = f.sub(f.mul(r, f.sub(v, x3)), f.mul(s1, hhh));
+		long[] z3 = f.mul(f.mul(p1[2], p2[2]), h);
+		return new long[][] {x3, y3, z3};
+	}
+
+	// madd with z2 = 1
+	private long[][] addAffine(long[][] p1, long[] x2, long[] y2) {
+		if(Fp256.isZero(p1[2])) {
+			return new long[][] {x2, y2, f.one()};
+		}
+		long[] z1z1 = f.sqr(p1[2]);
+		long[] u2 = f.mul(x2, z1z1);
+		long[] s2 = f.mul(y2, f.mul(p1[2], z1z1));
+		long[] h = f.sub(u2, p1[0]);
+		long[] r = f.sub(s2, p1[1]);
+		if(Fp256.isZero(h)) {
+			return Fp256.isZero(r) ? dbl(p1) : infinity();
+		}
+		long[] hh = f.sqr(h);
+		long[] hhh = f.mul(h, hh);
+		long[] v = f.mul(p1[0], hh);
+		long[] x3 = f.sub(f.sub(f.sqr(r), hhh), f.add(v, v));
+		long[] y3 = f.sub(f.mul(r, f.sub(v, x3)), f.mul(p1[1], hhh));
+		long[] z3 = f.mul(p1[2], h);
+		return new long[][] {x3, y3, z3};
+	}
+
+	@Override
+	public String toString() {
+		return "EcGroup[p="+fieldBits+" bits, n="+n.bitLength()+" bits]";
+	}
+}
@@ -0,0 +1,357 @@
+package dkg.group;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic in F_p for odd p below 2^256, on four little-endian 64 bit limbs in
+ * Montgomery form (x*2^256 mod p). Results are new arrays fully reduced into [0, p).
+ */
+final class Fp256 {
+	static final int LIMBS = 4;
+	private static final int GCD_STEPS = 30;
+	private static final long LOW_MASK = (1L<<GCD_STEPS)-1;
+
+	private final BigInteger modulus;
+	private final long[] p;
+	private final long pInv;
+	private final long[] r2;
+	private final long[] one;
+	private final long[] r3;
+	private final long[] pWide;
+	private final int inverseRounds;
+
+	Fp256(BigInteger modulus) {
+		if(!modulus.testBit(0) || modulus.bitLength()>64*LIMBS) {
+			throw new IllegalArgumentException("modulus must be odd and at most 256 bits");
+		}
+		this.modulus = modulus;
+		this.p = limbs(modulus);
+		// -p^-1 mod 2^64 by Newton iteration
+		long inv = 1;
+		for(int i=0; i<6; i++) {
+			inv *= 2-p[0]*inv;
+		}
+		this.pInv = -inv;
+		this.r2 = limbs(BigInteger.ONE.shiftLeft(2*64*LIMBS).mod(modulus));
+		this.one = limbs(BigInteger.ONE.shiftLeft(64*LIMBS).mod(modulus));
+		this.r3 = limbs(BigInteger.ONE.shiftLeft(3*64*LIMBS).mod(modulus));
+		this.pWide = new long[] {p[0], p[1], p[2], p[3], 0};
+		this.inverseRounds = (2*modulus.bitLength()-1+GCD_STEPS-1)/GCD_STEPS;
+	}
+
+	long[] one() {
+		return one.clone();
+	}
+
+	long[] toMont(BigInteger x) {
+		return mul(limbs(x.mod(modulus)), r2);
+	}
+
+	BigInteger fromMont(long[] a) {
+		long[] x = mul(a, new long[] {1, 0, 0, 0});
+		byte[] bytes = new byte[8*LIMBS];
+		for(int i=0; i<LIMBS; i++) {
+			long limb = x[i];
+			for(int k=0; k<8; k++) {
+				bytes[bytes.length-1-8*i-k] = (byte)(limb>>>(8*k));
+			}
+		}
+		return new BigInteger(1, bytes);
+	}
+
+	static boolean isZero(long[] a) {
+		return (a[0]|a[1]|a[2]|a[3])==0;
+	}
+
+	// CIOS Montgomery product a*b/2^256 mod p
+	long[] mul(long[] a, long[] b) {
+		long t0 = 0, t1 = 0, t2 = 0, t3 = 0, t4 = 0;
+		for(int i=0; i<LIMBS; i++) {
+			long ai = a[i];
+			long lo, hi, s, c;
+
+			lo = ai*b[0]; hi = umulh(ai, b[0]);
+			s = t0+lo; hi += Long.compareUnsigned(s, lo)<0 ? 1 : 0;
+			t0 = s; c = hi;
+
+			lo = ai*b[1]; hi = umulh(ai, b[1]);
+			s = t1+lo; hi += Long.compareUnsigned(s, lo)<0 ? 1 : 0;
+			s += c; hi += Long.compareUnsigned(s, c)<0 ? 1 : 0;
+			t1 = s; c = hi;
+
+			lo = ai*b[2]; hi = umulh(ai, b[2]);
+			s = t2+lo; hi += Long.compareUnsigned(s, lo)<0 ? 1 : 0;
+			s += c; hi += Long.compareUnsigned(s, c)<0 ? 1 : 0;
+			t2 = s; c = hi;
+
+			lo = ai*b[3]; hi = umulh(ai, b[3]);
+			s = t3+lo; hi += Long.compareUnsigned(s, lo)<0 ? 1 : 0;
+			s += c; hi += Long.compareUnsigned(s, c)<0 ? 1 : 0;
+			t3 = s; c = hi;
+
+			s = t4+c;
+			long t5 = Long.compareUnsigned(s, c)<0 ? 1 : 0;
+			t4 = s;
+
+			// add m*p so the lowest limb vanishes, then shift down one limb
+			long m = t0*pInv;
+			lo = m*p[0]; hi = umulh(m, p[0]);
+			s = t0+lo; hi += Long.compareUnsigned(s, lo)<0 ? 1 : 0;
+			c = hi;
+
+			lo = m*p[1]; hi = umulh(m, p[1]);
+			s = t1+lo; hi += Long.compareUnsigned(s, lo)<0 ? 1 : 0;
+			s += c; hi += Long.compareUnsigned(s, c)<0 ? 1 : 0;
+			t0 = s; c = hi;
+
+			lo = m*p[2]; hi = umulh(m, p[2]);
+			s = t2+lo; hi += Long.compareUnsigned(s, lo)<0 ? 1 : 0;
+			s += c; hi += Long.compareUnsigned(s, c)<0 ? 1 : 0;
+			t1 = s; c = hi;
+
+			lo = m*p[3]; hi = umulh(m, p[3]);
+			s = t3+lo; hi += Long.compareUnsigned(s, lo)<0 ? 1 : 0;
+			s += c; hi += Long.compareUnsigned(s, c)<0 ? 1 : 0;
+			t2 = s; c = hi;
+
+			s = t4+c;
+			t3 = s;
+			t4 = t5+(Long.compareUnsigned(s, c)<0 ? 1 : 0);
+		}
+		return reduceOnce(t0, t1, t2, t3, t4);
+	}
+
+	long[] sqr(long[] a) {
+		return mul(a, a);
+	}
+
+	long[] add(long[] a, long[] b) {
+		long s0 = a[0]+b[0];
+		long c = Long.compareUnsigned(s0, a[0])<0 ? 1 : 0;
+		long s1 = a[1]+b[1]+c;
+		c = (Long.compareUnsigned(s1, a[1])<0 || (c==1 && s1==a[1])) ? 1 : 0;
+		long s2 = a[2]+b[2]+c;
+		c = (Long.compareUnsigned(s2, a[2])<0 || (c==1 && s2==a[2])) ? 1 : 0;
+		long s3 = a[3]+b[3]+c;
+		c = (Long.compareUnsigned(s3, a[3])<0 || (c==1 && s3==a[3])) ? 1 : 0;
+		return reduceOnce(s0, s1, s2, s3, c);
+	}
+
+	long[] sub(long[] a, long[] b) {
+		long d0 = a[0]-b[0];
+		long borrow = Long.compareUnsigned(a[0], b[0])<0 ? 1 : 0;
+		long d1 = a[1]-b[1]-borrow;
+		borrow = (Long.compareUnsigned(a[1], b[1])<0 || (borrow==1 && a[1]==b[1])) ? 1 : 0;
+		long d2 = a[2]-b[2]-borrow;
+		borrow = (Long.compareUnsigned(a[2], b[2])<0 || (borrow==1 && a[2]==b[2])) ? 1 : 0;
+		long d3 = a[3]-b[3]-borrow;
+		borrow = (Long.compareUnsigned(a[3], b[3])<0 || (borrow==1 && a[3]==b[3])) ? 1 : 0;
+		if(borrow==0) {
+			return new long[] {d0, d1, d2, d3};
+		}
+		// wrapped below zero, add p back
+		long s0 = d0+p[0];
+		long c = Long.compareUnsigned(s0, d0)<0 ? 1 : 0;
+		long s1 = d1+p[1]+c;
+		c = (Long.compareUnsigned(s1, d1)<0 || (c==1 && s1==d1)) ? 1 : 0;
+		long s2 = d2+p[2]+c;
+		c = (Long.compareUnsigned(s2, d2)<0 || (c==1 && s2==d2)) ? 1 : 0;
+		long s3 = d3+p[3]+c;
+		return new long[] {s0, s1, s2, s3};
+	}
+
+	/*
+	 * Pornin's optimized binary GCD (eprint 2020/972): each outer round runs 30
+	 * branch-free steps on 62 bit approximations of a and b, then applies the
+	 * collected factors to the full values. Input and output are in Montgomery form,
+	 * so the plain inverse is lifted with a product by R^3.
+	 */
+	long[] inv(long[] x) {
+		if(isZero(x)) {
+			throw new ArithmeticException("zero has no inverse");
+		}
+		long[] a = x.clone();
+		long[] b = p.clone();
+		long[] u = {1, 0, 0, 0};
+		long[] v = new long[LIMBS];
+		for(int round=0; round<inverseRounds; round++) {
+			int len = Math.max(62, Math.max(bitLength(a), bitLength(b)));
+			long aa = (a[0]&LOW_MASK)|(bits(a, len-32)<<GCD_STEPS);
+			long bb = (b[0]&LOW_MASK)|(bits(b, len-32)<<GCD_STEPS);
+			long f0 = 1, g0 = 0, f1 = 0, g1 = 1;
+			for(int j=0; j<GCD_STEPS; j++) {
+				long odd = -(aa&1);
+				long swap = odd&((aa-bb)>>63);
+				long t = swap&(aa^bb);
+				aa ^= t;
+				bb ^= t;
+				t = swap&(f0^f1);
+				f0 ^= t;
+				f1 ^= t;
+				t = swap&(g0^g1);
+				g0 ^= t;
+				g1 ^= t;
+				aa -= odd&bb;
+				f0 -= odd&f1;
+				g0 -= odd&g1;
+				aa >>= 1;
+				f1 <<= 1;
+				g1 <<= 1;
+			}
+			long[] na = new long[LIMBS+1];
+			long[] nb = new long[LIMBS+1];
+			combine(a, f0, b, g0, null, 0, na);
+			combine(a, f1, b, g1, null, 0, nb);
+			if(na[LIMBS]<0) {
+				negate(na);
+				f0 = -f0;
+				g0 = -g0;
+			}
+			if(nb[LIMBS]<0) {
+				negate(nb);
+				f1 = -f1;
+				g1 = -g1;
+			}
+			System.arraycopy(na, 0, a, 0, LIMBS);
+			System.arraycopy(nb, 0, b, 0, LIMBS);
+			long[] nu = divideStep(u, v, f0, g0);
+			v = divideStep(u, v, f1, g1);
+			u = nu;
+		}
+		return mul(v, r3);
+	}
+
+	// (x*f + y*g)/2^30 mod p for x, y in [0, p)
+	private long[] divideStep(long[] x, long[] y, long f, long g) {
+		long low = (x[0]*f+y[0]*g)&LOW_MASK;
+		long m = (low*pInv)&LOW_MASK;
+		long[] w = new long[LIMBS+1];
+		combine(x, f, y, g, p, m, w);
+		// |w| < 2p
+		while(w[LIMBS]<0) {
+			accumulate(w, pWide);
+		}
+		while(w[LIMBS]!=0 || !greater(p, w)) {
+			subtract(w, pWide);
+		}
+		return new long[] {w[0], w[1], w[2], w[3]};
+	}
+
+	// out = (x*f + y*g + z*h)/2^30 as a signed 5 limb value; the low 30 bits of the sum are zero
+	private static void combine(long[] x, long f, long[] y, long g, long[] z, long h, long[] out) {
+		long carry = 0;
+		long[] sum = new long[LIMBS+1];
+		for(int i=0; i<LIMBS; i++) {
+			long lo = x[i]*f;
+			long hi = mulhSigned(x[i], f);
+			long s = lo+y[i]*g;
+			hi += mulhSigned(y[i], g)+(Long.compareUnsigned(s, lo)<0 ? 1 : 0);
+			if(z!=null) {
+				long before = s;
+				s += z[i]*h;
+				hi += mulhSigned(z[i], h)+(Long.compareUnsigned(s, before)<0 ? 1 : 0);
+			}
+			long before = s;
+			s += carry;
+			hi += (carry>>63)+(Long.compareUnsigned(s, before)<0 ? 1 : 0);
+			sum[i] = s;
+			carry = hi;
+		}
+		sum[LIMBS] = carry;
+		for(int i=0; i<LIMBS; i++) {
+			out[i] = (sum[i]>>>GCD_STEPS)|(sum[i+1]<<(64-GCD_STEPS));
+		}
+		out[LIMBS] = sum[LIMBS]>>GCD_STEPS;
+	}
+
+	// high word of the unsigned x times the signed f
+	private static long mulhSigned(long x, long f) {
+		return Math.multiplyHigh(x, f)+((x>>63)&f);
+	}
+
+	private static void negate(long[] x) {
+		long carry = 1;
+		for(int i=0; i<x.length; i++) {
+			long s = ~x[i]+carry;
+			carry = (carry==1 && s==0) ? 1 : 0;
+			x[i] = s;
+		}
+	}
+
+	private static int bitLength(long[] x) {
+		for(int i=LIMBS-1; i>=0; i--) {
+			if(x[i]!=0) {
+				return 64*i+64-Long.numberOfLeadingZeros(x[i]);
+			}
+		}
+		return 0;
+	}
+
+	// the 32 bits of x starting at bit position from
+	private static long bits(long[] x, int from) {
+		int limb = from>>>6;
+		int shift = from&63;
+		long value = x[limb]>>>shift;
+		if(shift>32 && limb+1<LIMBS) {
+			value |= x[limb+1]<<(64-shift);
+		}
+		return value&0xFFFFFFFFL;
+	}
+
+	private static boolean greater(long[] x, long[] y) {
+		for(int i=LIMBS-1; i>=0; i--) {
+			if(x[i]!=y[i]) {
+				return Long.compareUnsigned(x[i], y[i])>0;
+			}
+		}
+		return false;
+	}
+
+	// x -= y over all limbs of x
+	private static void subtract(long[] x, long[] y) {
+		long borrow = 0;
+		for(int i=0; i<x.length; i++) {
+			long d = x[i]-y[i]-borrow;
+			borrow = (Long.compareUnsigned(x[i], y[i])<0 || (borrow==1 && x[i]==y[i])) ? 1 : 0;
+			x[i] = d;
+		}
+	}
+
+	// x += y over all limbs of x
+	private static void accumulate(long[] x, long[] y) {
+		long carry = 0;
+		for(int i=0; i<x.length; i++) {
+			long s = x[i]+y[i]+carry;
+			carry = (Long.compareUnsigned(s, x[i])<0 || (carry==1 && s==x[i])) ? 1 : 0;
+			x[i] = s;
+		}
+	}
+
+	// value (top:x3:x2:x1:x0) < 2p, subtract p once if it is >= p
+	private long[] reduceOnce(long x0, long x1, long x2, long x3, long top) {
+		long d0 = x0-p[0];
+		long borrow = Long.compareUnsigned(x0, p[0])<0 ? 1 : 0;
+		long d1 = x1-p[1]-borrow;
+		borrow = (Long.compareUnsigned(x1, p[1])<0 || (borrow==1 && x1==p[1])) ? 1 : 0;
+		long d2 = x2-p[2]-borrow;
+		borrow = (Long.compareUnsigned(x2, p[2])<0 || (borrow==1 && x2==p[2])) ? 1 : 0;
+		long d3 = x3-p[3]-borrow;
+		borrow = (Long.compareUnsigned(x3, p[3])<0 || (borrow==1 && x3==p[3])) ? 1 : 0;
+		if(top!=0 || borrow==0) {
+			return new long[] {d0, d1, d2, d3};
+		}
+		return new long[] {x0, x1, x2, x3};
+	}
+
+	private static long umulh(long a, long b) {
+		return Math.multiplyHigh(a, b)+((a>>63)&b)+((b>>63)&a);
+	}
+
+	private static long[] limbs(BigInteger x) {
+		long[] limbs = new long[LIMBS];
+		for(int i=0; i<LIMBS; i++) {
+			limbs[i] = x.shiftRight(64*i).longValue();
+		}
+		return limbs;
+	}
+}
@@ -0,0 +1,73 @@
+package dkg.group;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A cyclic group of prime order q, written multiplicatively. Elements are carried
+ * as non-negative BigIntegers so that they fit the existing lists, matrices and
+ * wire format; every element has exactly one such representation.
+ */
+public interface Group {
+
+	BigInteger order();
+
+	BigInteger identity();
+
+	BigInteger mul(BigInteger a, BigInteger b);
+
+	BigInteger inverse(BigInteger a);
+
+	BigInteger pow(BigInteger base, BigInteger exponent);
+
+	// precomputes for base; the returned function is thread safe and may be cached
+	Function<BigInteger,BigInteger> fixedBase(BigInteger base);
+
+	// like fixedBase, but never cached: the table is freed with the returned function
+	Function<BigInteger,BigInteger> newFixedBase(BigInteger base);
+
+	// prod elements, the identity for an empty list
+	default BigInteger product(List<BigInteger> elements) {
+		return elements.stream().reduce(identity(), this::mul);
+	}
+
+	// prod bases[i]^exponents[i]
+	BigInteger multiExp(List<BigInteger> bases, List<BigInteger> exponents);
+
+	// true for elements of the order q subgroup, including the identity
+	boolean contains(BigInteger element);
+
+	// an element nobody knows the discrete logarithm of, derived from seed
+	BigInteger hashToElement(byte[] seed);
+
+	// upper bound on the bit length of an element's representation
+	int elementBits();
+
+	default int elementBytes() {
+		return (elementBits()+7)/8;
+	}
+
+	// fixed width big-endian encoding of elementBytes() bytes
+	default byte[] encode(BigInteger element) {
+		byte[] bytes = element.toByteArray();
+		byte[] out = new byte[elementBytes()];
+		int skip = Math.max(0, bytes.length-out.length);
+		System.arraycopy(bytes, skip, out, out.length-(bytes.length-skip), bytes.length-skip);
+		return out;
+	}
+
+	// cheap check that element is a valid representation; may skip subgroup membership
+	default boolean isCanonical(BigInteger element) {
+		return contains(element);
+	}
+
+	// inverse of encode; throws IllegalArgumentException for a non-canonical value
+	default BigInteger decode(byte[] bytes, int offset, int length) {
+		BigInteger element = new BigInteger(1, bytes, offset, length);
+		if(!isCanonical(element)) {
+			throw new IllegalArgumentException("not a group element");
+		}
+		return element;
+	}
+}
@@ -0,0 +1,122 @@
+package dkg.group;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.function.Function;
+
+import dkg.math.FixedBaseExp;
+import dkg.math.Montgomery;
+import dkg.math.MultiExp;
+
+/**
+ * The order q subgroup of Z_p^*. Elements are residues in [1, p).
+ */
+public final class ModPGroup implements Group {
+
+	private final BigInteger p;
+	private final BigInteger q;
+
+	public ModPGroup(BigInteger p, BigInteger q) {
+		this.p = p;
+		this.q = q;
+	}
+
+	public BigInteger modulus() {
+		return p;
+	}
+
+	@Override
+	public BigInteger order() {
+		return q;
+	}
+
+	@Override
+	public BigInteger identity() {
+		return BigInteger.ONE;
+	}
+
+	@Override
+	public BigInteger mul(BigInteger a, BigInteger b) {
+		return a.multiply(b).mod(p);
+	}
+
+	@Override
+	public BigInteger product(List<BigInteger> elements) {
+		return Montgomery.of(p).product(elements);
+	}
+
+	@Override
+	public BigInteger inverse(BigInteger a) {
+		return a.modInverse(p);
+	}
+
+	@Override
+	public BigInteger pow(BigInteger base, BigInteger exponent) {
+		return base.modPow(exponent, p);
+	}
+
+	@Override
+	public Function<BigInteger,BigInteger> fixedBase(BigInteger base) {
+		return FixedBaseExp.of(base, p, q.bitLength());
+	}
+
+	@Override
+	public Function<BigInteger,BigInteger> newFixedBase(BigInteger base) {
+		return FixedBaseExp.create(base, p, q.bitLength());
+	}
+
+	@Override
+	public BigInteger multiExp(List<BigInteger> bases, List<BigInteger> exponents) {
+		return MultiExp.product(bases, exponents, p);
+	}
+
+	@Override
+	public boolean contains(BigInteger element) {
+		return element.signum()>0 && element.compareTo(p)<0 && element.modPow(q, p).equals(BigInteger.ONE);
+	}
+
+	// a residue in [1, p); membership in the order q subgroup costs a modPow and is left to contains
+	@Override
+	public boolean isCanonical(BigInteger element) {
+		return element.signum()>0 && element.compareTo(p)<0;
+	}
+
+	// hashes into Z_p^* and raises to the cofactor
+	@Override
+	public BigInteger hashToElement(byte[] seed) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		BigInteger cofactor = p.subtract(BigInteger.ONE).divide(q);
+		int blocks = (p.bitLength()+64+255)/256;
+		for(int counter=0; ; counter++) {
+			byte[] material = new byte[blocks*32];
+			for(int b=0; b<blocks; b++) {
+				digest.update("dkg-generator-h".getBytes(StandardCharsets.US_ASCII));
+				digest.update(seed);
+				digest.update(new byte[] {(byte)(counter>>>8), (byte)counter, (byte)b});
+				System.arraycopy(digest.digest(), 0, material, b*32, 32);
+			}
+			BigInteger candidate = new BigInteger(1, material).mod(p).modPow(cofactor, p);
+			if(candidate.compareTo(BigInteger.ONE)>0) {
+				return candidate;
+			}
+		}
+	}
+
+	@Override
+	public int elementBits() {
+		return p.bitLength();
+	}
+
+	@Override
+	public String toString() {
+		return "ModPGroup[p="+p.bitLength()+" bits, q="+q.bitLength()+" bits]";
+	}
+}
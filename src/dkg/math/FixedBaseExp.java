@@ -0,0 +1,94 @@
+package dkg.math;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Fixed-base exponentiation: base^(d*256^i) mod modulus is tabulated once for every
+ * byte position i and digit d, so a power costs one modular product per non-zero
+ * exponent byte and no squarings. The table and the running product are kept in
+ * {@link Montgomery} form, so a power allocates only its result.
+ * Tables are shared through {@link #of} and live as long as the process, so only
+ * long-lived bases such as the generators belong there; {@link #create} builds a
+ * table owned by the caller.
+ */
+public final class FixedBaseExp implements Function<BigInteger,BigInteger> {
+	private static final int WINDOW = 8;
+	private static final Map<List<Object>, FixedBaseExp> tables = new ConcurrentHashMap<>();
+
+	private final BigInteger base;
+	private final BigInteger modulus;
+	private final int maxBits;
+	private final Montgomery mont;
+	private final long[][][] table;
+
+	private FixedBaseExp(BigInteger base, BigInteger modulus, int maxBits) {
+		this.base = base.mod(modulus);
+		this.modulus = modulus;
+		this.maxBits = maxBits;
+		this.mont = Montgomery.of(modulus);
+		this.table = buildTable();
+	}
+
+	public static FixedBaseExp of(BigInteger base, BigInteger modulus) {
+		return of(base, modulus, modulus.bitLength());
+	}
+
+	// exponents wider than maxBits fall back to modPow
+	public static FixedBaseExp of(BigInteger base, BigInteger modulus, int maxBits) {
+		return tables.computeIfAbsent(List.of(base, modulus, maxBits), k -> new FixedBaseExp(base, modulus, maxBits));
+	}
+
+	// an uncached table, garbage once the caller drops it
+	public static FixedBaseExp create(BigInteger base, BigInteger modulus, int maxBits) {
+		return new FixedBaseExp(base, modulus, maxBits);
+	}
+
+	private long[][][] buildTable() {
+		int rows = (maxBits + WINDOW - 1) / WINDOW;
+		long[][][] rowsTable = new long[rows][(1<<WINDOW) - 1][mont.limbs()];
+		Montgomery.Scratch s = mont.scratch();
+		long[] rowBase = mont.toMont(base);
+		for(int i=0; i<rows; i++) {
+			long[][] row = rowsTable[i];
+			System.arraycopy(rowBase, 0, row[0], 0, rowBase.length);
+			for(int d=1; d<row.length; d++) {
+				mont.mulInto(row[d-1], rowBase, row[d], s);
+			}
+			mont.mulInto(row[row.length-1], rowBase, rowBase, s);
+		}
+		return rowsTable;
+	}
+
+	public BigInteger getBase() {
+		return base;
+	}
+
+	public BigInteger getModulus() {
+		return modulus;
+	}
+
+	@Override
+	public BigInteger apply(BigInteger exponent) {
+		if(exponent.signum() < 0 || exponent.bitLength() > maxBits) {
+			return base.modPow(exponent, modulus);
+		}
+		Montgomery.Scratch s = mont.localScratch();
+		byte[] digits = exponent.toByteArray();
+		long[] result = null;
+		for(int i=0, k=digits.length-1; k>=0; i++, k--) {
+			int d = digits[k] & 0xff;
+			if(d != 0) {
+				if(result == null) {
+					result = table[i][d-1].clone();
+				} else {
+					mont.mulInto(result, table[i][d-1], result, s);
+				}
+			}
+		}
+		return result == null ? BigInteger.ONE.mod(modulus) : mont.fromMont(result, s);
+	}
+}
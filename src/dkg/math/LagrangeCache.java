@@ -0,0 +1,114 @@
+package dkg.math;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lagrange coefficients mod q for interpolating at x from a set of points, cached
+ * per (points, x). All denominators of a set are inverted together with
+ * Montgomery's trick, so a new set costs a single modInverse.
+ */
+public final class LagrangeCache {
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private final BigInteger q;
+	private final Map<List<Integer>, List<BigInteger>> cache;
+
+	public LagrangeCache(BigInteger q) {
+		this(q, DEFAULT_CAPACITY);
+	}
+
+	public LagrangeCache(BigInteger q, int capacity) {
+		this.q = q;
+		this.cache = new LinkedHashMap<List<Integer>, List<BigInteger>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Integer>, List<BigInteger>> eldest) {
+				return size()>capacity;
+			}
+		};
+	}
+
+	// points are distinct x-coordinates, the result is index-aligned with them
+	public List<BigInteger> coefficients(List<Integer> points, int x) {
+		List<Integer> key = new ArrayList<>(points.size()+1);
+		key.addAll(points);
+		key.add(x);
+		synchronized(cache) {
+			List<BigInteger> cached = cache.get(key);
+			if(cached!=null) {
+				return cached;
+			}
+		}
+		List<BigInteger> lambdas = compute(points, x);
+		synchronized(cache) {
+			cache.put(List.copyOf(key), lambdas);
+		}
+		return lambdas;
+	}
+
+	private List<BigInteger> compute(List<Integer> points, int x) {
+		int k = points.size();
+		BigInteger[] xs = new BigInteger[k];
+		for(int i=0; i<k; i++) {
+			xs[i] = BigInteger.valueOf(points.get(i));
+		}
+		BigInteger at = BigInteger.valueOf(x);
+
+		// numerator_i = prod_{j!=i} (x - x_j) from prefix and suffix products
+		BigInteger[] suffix = new BigInteger[k+1];
+		suffix[k] = BigInteger.ONE;
+		for(int i=k-1; i>=0; i--) {
+			suffix[i] = suffix[i+1].multiply(at.subtract(xs[i])).mod(q);
+		}
+		BigInteger[] numerators = new BigInteger[k];
+		BigInteger prefix = BigInteger.ONE;
+		for(int i=0; i<k; i++) {
+			numerators[i] = prefix.multiply(suffix[i+1]).mod(q);
+			prefix = prefix.multiply(at.subtract(xs[i])).mod(q);
+		}
+
+		BigInteger[] denominators = new BigInteger[k];
+		for(int i=0; i<k; i++) {
+			BigInteger d = BigInteger.ONE;
+			for(int j=0; j<k; j++) {
+				if(j!=i) {
+					d = d.multiply(xs[i].subtract(xs[j])).mod(q);
+				}
+			}
+			denominators[i] = d;
+		}
+		BigInteger[] inverses = invertAll(denominators, q);
+
+		BigInteger[] lambdas = new BigInteger[k];
+		for(int i=0; i<k; i++) {
+			lambdas[i] = numerators[i].multiply(inverses[i]).mod(q);
+		}
+		return List.of(lambdas);
+	}
+
+	// Montgomery batch inversion: one modInverse and 3(k-1) products for k values
+	public static BigInteger[] invertAll(BigInteger[] values, BigInteger modulus) {
+		int k = values.length;
+		BigInteger[] inverses = new BigInteger[k];
+		if(k==0) {
+			return inverses;
+		}
+		BigInteger[] prefix = new BigInteger[k];
+		prefix[0] = values[0].mod(modulus);
+		for(int i=1; i<k; i++) {
+			prefix[i] = prefix[i-1].multiply(values[i]).mod(modulus);
+		}
+		BigInteger inverse = prefix[k-1].modInverse(modulus);
+		for(int i=k-1; i>0; i--) {
+			inverses[i] = inverse.multiply(prefix[i-1]).mod(modulus);
+			inverse = inverse.multiply(values[i]).mod(modulus);
+		}
+		inverses[0] = inverse;
+		return inverses;
+	}
+}
@@ -0,0 +1,230 @@
+package dkg.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Montgomery arithmetic modulo an odd modulus on little-endian 64 bit limbs. Values
+ * in Montgomery form are long[limbs()] arrays holding x*2^(64*limbs) mod modulus.
+ * The *Into methods write their result to a caller supplied array and take their
+ * temporaries from a {@link Scratch}, so a chain of products allocates nothing;
+ * only entering and leaving the Montgomery domain creates BigIntegers.
+ * Instances are shared through {@link #of}.
+ */
+public final class Montgomery {
+	private static final Map<BigInteger, Montgomery> instances = new ConcurrentHashMap<>();
+
+	private final BigInteger modulus;
+	private final int n;
+	private final long[] m;
+	private final long mInv;
+	private final long[] r2;
+	private final long[] one;
+	private final ThreadLocal<Scratch> scratch;
+	// R^k mod modulus in plain form, grown on demand by product
+	private volatile long[][] rPowers;
+
+	public Montgomery(BigInteger modulus) {
+		if(!modulus.testBit(0) || modulus.signum()<=0) {
+			throw new IllegalArgumentException("modulus must be odd and positive");
+		}
+		this.modulus = modulus;
+		this.n = (modulus.bitLength()+63)/64;
+		this.m = limbs(modulus, n);
+		long inv = 1;
+		for(int i=0; i<6; i++) {
+			inv *= 2-m[0]*inv;
+		}
+		this.mInv = -inv;
+		this.r2 = limbs(BigInteger.ONE.shiftLeft(128*n).mod(modulus), n);
+		this.one = limbs(BigInteger.ONE.shiftLeft(64*n).mod(modulus), n);
+		this.scratch = ThreadLocal.withInitial(this::scratch);
+		this.rPowers = new long[][] {limbs(BigInteger.ONE, n), one};
+	}
+
+	public static Montgomery of(BigInteger modulus) {
+		return instances.computeIfAbsent(modulus, Montgomery::new);
+	}
+
+	public BigInteger modulus() {
+		return modulus;
+	}
+
+	public int limbs() {
+		return n;
+	}
+
+	public Scratch scratch() {
+		return new Scratch(n);
+	}
+
+	// the calling thread's scratch for this instance
+	public Scratch localScratch() {
+		return scratch.get();
+	}
+
+	public static final class Scratch {
+		final long[] t;
+		final long[] x;
+		final long[] y;
+		final byte[] bytes;
+
+		private Scratch(int n) {
+			this.t = new long[n+2];
+			this.x = new long[n];
+			this.y = new long[n];
+			this.bytes = new byte[8*n];
+		}
+	}
+
+	public long[] one() {
+		return one.clone();
+	}
+
+	public long[] toMont(BigInteger x) {
+		long[] out = new long[n];
+		toMontInto(x, out, localScratch());
+		return out;
+	}
+
+	public void toMontInto(BigInteger x, long[] out, Scratch s) {
+		loadInto(x, s.x);
+		mulInto(s.x, r2, out, s);
+	}
+
+	public BigInteger fromMont(long[] a, Scratch s) {
+		long[] unit = s.y;
+		Arrays.fill(unit, 0);
+		unit[0] = 1;
+		mulInto(a, unit, s.x, s);
+		return store(s.x, s);
+	}
+
+	// prod values mod modulus: k-1 products of plain values leave prod/R^(k-1), one product by R^k undoes it
+	public BigInteger product(List<BigInteger> values) {
+		int k = values.size();
+		if(k==0) {
+			return BigInteger.ONE.mod(modulus);
+		}
+		if(k==1) {
+			return values.get(0).mod(modulus);
+		}
+		Scratch s = localScratch();
+		long[] acc = new long[n];
+		loadInto(values.get(0), acc);
+		for(int i=1; i<k; i++) {
+			loadInto(values.get(i), s.y);
+			mulInto(acc, s.y, acc, s);
+		}
+		mulInto(acc, rPower(k), acc, s);
+		return store(acc, s);
+	}
+
+	private long[] rPower(int k) {
+		long[][] powers = rPowers;
+		if(k<powers.length) {
+			return powers[k];
+		}
+		synchronized(this) {
+			powers = rPowers;
+			if(k>=powers.length) {
+				long[][] grown = Arrays.copyOf(powers, Math.max(k+1, 2*powers.length));
+				Scratch s = scratch();
+				for(int i=powers.length; i<grown.length; i++) {
+					grown[i] = new long[n];
+					mulInto(grown[i-1], r2, grown[i], s);
+				}
+				rPowers = powers = grown;
+			}
+			return powers[k];
+		}
+	}
+
+	// out = a*b/R mod modulus, CIOS; out may alias a or b
+	public void mulInto(long[] a, long[] b, long[] out, Scratch s) {
+		long[] t = s.t;
+		Arrays.fill(t, 0);
+		for(int i=0; i<n; i++) {
+			long ai = a[i];
+			long c = 0;
+			for(int j=0; j<n; j++) {
+				long lo = ai*b[j];
+				long hi = umulh(ai, b[j]);
+				long sum = t[j]+lo;
+				hi += Long.compareUnsigned(sum, lo)<0 ? 1 : 0;
+				long sum2 = sum+c;
+				hi += Long.compareUnsigned(sum2, c)<0 ? 1 : 0;
+				t[j] = sum2;
+				c = hi;
+			}
+			long top = t[n]+c;
+			t[n+1] = Long.compareUnsigned(top, c)<0 ? 1 : 0;
+			t[n] = top;
+
+			long q = t[0]*mInv;
+			long lo = q*m[0];
+			long hi = umulh(q, m[0]);
+			hi += Long.compareUnsigned(t[0]+lo, lo)<0 ? 1 : 0;
+			c = hi;
+			for(int j=1; j<n; j++) {
+				lo = q*m[j];
+				hi = umulh(q, m[j]);
+				long sum = t[j]+lo;
+				hi += Long.compareUnsigned(sum, lo)<0 ? 1 : 0;
+				long sum2 = sum+c;
+				hi += Long.compareUnsigned(sum2, c)<0 ? 1 : 0;
+				t[j-1] = sum2;
+				c = hi;
+			}
+			top = t[n]+c;
+			t[n-1] = top;
+			t[n] = t[n+1]+(Long.compareUnsigned(top, c)<0 ? 1 : 0);
+		}
+		// t < 2m: subtract once if needed
+		long borrow = 0;
+		for(int i=0; i<n; i++) {
+			long d = t[i]-m[i]-borrow;
+			borrow = (Long.compareUnsigned(t[i], m[i])<0 || (borrow==1 && t[i]==m[i])) ? 1 : 0;
+			out[i] = d;
+		}
+		if(t[n]==0 && borrow==1) {
+			System.arraycopy(t, 0, out, 0, n);
+		}
+	}
+
+	// plain limbs of x mod modulus
+	private void loadInto(BigInteger x, long[] out) {
+		BigInteger reduced = x.signum()<0 || x.compareTo(modulus)>=0 ? x.mod(modulus) : x;
+		byte[] bytes = reduced.toByteArray();
+		Arrays.fill(out, 0);
+		for(int i=0, k=bytes.length-1; k>=0 && i<8*n; i++, k--) {
+			out[i>>>3] |= (bytes[k]&0xffL)<<(8*(i&7));
+		}
+	}
+
+	private static BigInteger store(long[] plain, Scratch s) {
+		byte[] bytes = s.bytes;
+		for(int i=0; i<plain.length; i++) {
+			long limb = plain[i];
+			for(int k=0; k<8; k++) {
+				bytes[bytes.length-1-8*i-k] = (byte)(limb>>>(8*k));
+			}
+		}
+		return new BigInteger(1, bytes);
+	}
+
+	private static long umulh(long a, long b) {
+		return Math.multiplyHigh(a, b)+((a>>63)&b)+((b>>63)&a);
+	}
+
+	private static long[] limbs(BigInteger x, int n) {
+		long[] limbs = new long[n];
+		for(int i=0; i<n; i++) {
+			limbs[i] = x.shiftRight(64*i).longValue();
+		}
+		return limbs;
+	}
+}
@@ -0,0 +1,145 @@
+package dkg.math;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Simultaneous multi-exponentiation prod bases[i]^exponents[i] mod modulus.
+ * Straus' interleaved windows are used for a few bases, Pippenger's bucket method
+ * once there are enough bases for the buckets to pay off. All products run on
+ * {@link Montgomery} limbs.
+ */
+public final class MultiExp {
+	private static final int PIPPENGER_THRESHOLD = 32;
+	private static final int STRAUS_WINDOW = 4;
+
+	private MultiExp() {
+	}
+
+	public static BigInteger product(List<BigInteger> bases, List<BigInteger> exponents, BigInteger modulus) {
+		if(bases.size()!=exponents.size()) {
+			throw new IllegalArgumentException("bases and exponents differ in size");
+		}
+		int k = bases.size();
+		BigInteger[] b = new BigInteger[k];
+		BigInteger[] e = new BigInteger[k];
+		int maxBits = 0;
+		for(int i=0; i<k; i++) {
+			BigInteger base = bases.get(i).mod(modulus);
+			BigInteger exponent = exponents.get(i);
+			if(exponent.signum()<0) {
+				base = base.modInverse(modulus);
+				exponent = exponent.negate();
+			}
+			b[i] = base;
+			e[i] = exponent;
+			maxBits = Math.max(maxBits, exponent.bitLength());
+		}
+		Montgomery mont = Montgomery.of(modulus);
+		Montgomery.Scratch s = mont.localScratch();
+		long[] result = k < PIPPENGER_THRESHOLD
+				? straus(b, e, maxBits, mont, s)
+				: pippenger(b, e, maxBits, mont, s);
+		return result==null ? BigInteger.ONE.mod(modulus) : mont.fromMont(result, s);
+	}
+
+	// null stands for the identity throughout
+	private static long[] straus(BigInteger[] b, BigInteger[] e, int maxBits, Montgomery mont, Montgomery.Scratch s) {
+		int w = STRAUS_WINDOW;
+		long[][][] powers = new long[b.length][][];
+		for(int i=0; i<b.length; i++) {
+			int size = 1<<Math.min(w, e[i].bitLength());
+			powers[i] = new long[size][];
+			for(int d=1; d<size; d++) {
+				if(d==1) {
+					powers[i][d] = mont.toMont(b[i]);
+				} else {
+					powers[i][d] = new long[mont.limbs()];
+					mont.mulInto(powers[i][d-1], powers[i][1], powers[i][d], s);
+				}
+			}
+		}
+		long[] acc = null;
+		for(int window=(maxBits+w-1)/w - 1; window>=0; window--) {
+			for(int step=0; step<w && acc!=null; step++) {
+				mont.mulInto(acc, acc, acc, s);
+			}
+			for(int i=0; i<b.length; i++) {
+				int d = digit(e[i], window*w, w);
+				if(d!=0) {
+					acc = multiply(acc, powers[i][d], mont, s);
+				}
+			}
+		}
+		return acc;
+	}
+
+	private static long[] pippenger(BigInteger[] b, BigInteger[] e, int maxBits, Montgomery mont, Montgomery.Scratch s) {
+		int c = Math.max(2, 31 - Integer.numberOfLeadingZeros(b.length) - 2);
+		long[][] bases = new long[b.length][];
+		for(int i=0; i<b.length; i++) {
+			bases[i] = mont.toMont(b[i]);
+		}
+		long[][] buckets = new long[1<<c][];
+		long[] running = new long[mont.limbs()];
+		long[] windowSum = new long[mont.limbs()];
+		long[] acc = null;
+		for(int window=(maxBits+c-1)/c - 1; window>=0; window--) {
+			for(int step=0; step<c && acc!=null; step++) {
+				mont.mulInto(acc, acc, acc, s);
+			}
+			Arrays.fill(buckets, null);
+			for(int i=0; i<b.length; i++) {
+				int d = digit(e[i], window*c, c);
+				if(d!=0) {
+					buckets[d] = multiply(buckets[d], bases[i], mont, s);
+				}
+			}
+			// prod buckets[d]^d as a running product of suffix products
+			boolean anyRunning = false;
+			boolean anySum = false;
+			for(int d=buckets.length-1; d>0; d--) {
+				if(buckets[d]!=null) {
+					if(anyRunning) {
+						mont.mulInto(running, buckets[d], running, s);
+					} else {
+						System.arraycopy(buckets[d], 0, running, 0, running.length);
+						anyRunning = true;
+					}
+				}
+				if(anyRunning) {
+					if(anySum) {
+						mont.mulInto(windowSum, running, windowSum, s);
+					} else {
+						System.arraycopy(running, 0, windowSum, 0, windowSum.length);
+						anySum = true;
+					}
+				}
+			}
+			if(anySum) {
+				acc = multiply(acc, windowSum, mont, s);
+			}
+		}
+		return acc;
+	}
+
+	// acc*x into acc, or a copy of x for the identity; x is never modified
+	private static long[] multiply(long[] acc, long[] x, Montgomery mont, Montgomery.Scratch s) {
+		if(acc==null) {
+			return x.clone();
+		}
+		mont.mulInto(acc, x, acc, s);
+		return acc;
+	}
+
+	private static int digit(BigInteger exponent, int offset, int width) {
+		int d = 0;
+		for(int bit=0; bit<width; bit++) {
+			if(exponent.testBit(offset+bit)) {
+				d |= 1<<bit;
+			}
+		}
+		return d;
+	}
+}
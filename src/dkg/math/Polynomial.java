@@ -0,0 +1,141 @@
+package dkg.math;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import dkg.exec.DkgScheduler;
+
+/**
+ * Polynomial a_0 + a_1 z + ... + a_d z^d over the integers mod modulus.
+ * Single points use Horner's rule; the consecutive points 1..n used for shares
+ * are evaluated with a forward-difference table, one modular addition per
+ * coefficient and point.
+ */
+public final class Polynomial implements Function<BigInteger,BigInteger> {
+	private static final int CHUNK = 1024;
+
+	private final BigInteger[] coefficients;
+	private final BigInteger modulus;
+
+	public Polynomial(List<BigInteger> coefficients, BigInteger modulus) {
+		if(coefficients.isEmpty()) {
+			throw new IllegalArgumentException("polynomial needs at least one coefficient");
+		}
+		this.modulus = modulus;
+		this.coefficients = coefficients.stream()
+				.map(a-> a.mod(modulus))
+				.toArray(BigInteger[]::new);
+	}
+
+	public int degree() {
+		return coefficients.length-1;
+	}
+
+	public BigInteger getCoefficient(int i) {
+		return coefficients[i];
+	}
+
+	@Override
+	public BigInteger apply(BigInteger z) {
+		BigInteger x = z.mod(modulus);
+		BigInteger acc = coefficients[coefficients.length-1];
+		for(int i=coefficients.length-2; i>=0; i--) {
+			acc = acc.multiply(x).add(coefficients[i]).mod(modulus);
+		}
+		return acc;
+	}
+
+	// values at 1..n
+	public List<BigInteger> evaluateRange(int n) {
+		return evaluateRange(n, DkgScheduler.shared());
+	}
+
+	// values at 1..n, chunks of points spread over the scheduler
+	public List<BigInteger> evaluateRange(int n, DkgScheduler scheduler) {
+		if(n<=CHUNK) {
+			return evaluateRange(1, n);
+		}
+		return scheduler.map(coefficients.length, (n+CHUNK-1)/CHUNK,
+				c-> evaluateRange(c*CHUNK+1, Math.min(n, (c+1)*CHUNK)))
+				.stream()
+				.flatMap(List::stream)
+				.collect(Collectors.toList());
+	}
+
+	// values at 1..n, each evaluated with Horner's rule when read and not kept
+	public List<BigInteger> lazyRange(int n) {
+		return new LazyRange(n);
+	}
+
+	private final class LazyRange extends AbstractList<BigInteger> implements RandomAccess {
+		private final int size;
+
+		LazyRange(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public BigInteger get(int i) {
+			if(i<0 || i>=size) {
+				throw new IndexOutOfBoundsException(i);
+			}
+			return apply(BigInteger.valueOf(i+1));
+		}
+	}
+
+	// values at from..to, both inclusive
+	public List<BigInteger> evaluateRange(int from, int to) {
+		int d = degree();
+		int count = to-from+1;
+		List<BigInteger> values = new ArrayList<>(Math.max(count,0));
+		if(count<=d+1) {
+			for(int x=from; x<=to; x++) {
+				values.add(apply(BigInteger.valueOf(x)));
+			}
+			return values;
+		}
+		// diffs[k] holds the k-th forward difference at the current point
+		BigInteger[] diffs = new BigInteger[d+1];
+		for(int k=0; k<=d; k++) {
+			diffs[k] = apply(BigInteger.valueOf(from+k));
+		}
+		for(int k=1; k<=d; k++) {
+			for(int i=d; i>=k; i--) {
+				diffs[i] = subtract(diffs[i], diffs[i-1]);
+			}
+		}
+		for(int x=from; x<=to; x++) {
+			values.add(diffs[0]);
+			for(int k=0; k<d; k++) {
+				diffs[k] = add(diffs[k], diffs[k+1]);
+			}
+		}
+		return values;
+	}
+
+	private BigInteger add(BigInteger a, BigInteger b) {
+		BigInteger r = a.add(b);
+		return r.compareTo(modulus)>=0 ? r.subtract(modulus) : r;
+	}
+
+	private BigInteger subtract(BigInteger a, BigInteger b) {
+		BigInteger r = a.subtract(b);
+		return r.signum()<0 ? r.add(modulus) : r;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(coefficients);
+	}
+}
@@ -0,0 +1,79 @@
+package dkg.metrics;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Listener the DKG classes report to. Every callback defaults to a no-op, so an
+ * implementation only overrides what it records. Callbacks come from worker
+ * threads and must be thread safe.
+ */
+public interface DkgMetrics {
+
+	DkgMetrics NOOP = new DkgMetrics() {};
+
+	default void phaseCompleted(Phase phase, long nanos) {}
+
+	// time a single dealer took to build its polynomials, shares and commitments
+	default void dealerCompleted(int dealer, long nanos) {}
+
+	// group exponentiations performed, one per base of a multi-exponentiation; scalar powers mod q are not counted
+	default void modPow(int count) {}
+
+	default void modInverse(int count) {}
+
+	// dealer or recipient is -1 when the caller cannot tell
+	default void verificationFailed(Phase phase, int dealer, int recipient, String reason) {}
+
+	// dropped connections, failed connects and malformed frames; peer is -1 when unknown
+	default void transportError(int peer, String reason) {}
+
+	default <T> T time(Phase phase, Supplier<T> body) {
+		long start = System.nanoTime();
+		try {
+			return body.get();
+		} finally {
+			phaseCompleted(phase, System.nanoTime()-start);
+		}
+	}
+
+	// emits JFR events, which cost next to nothing while no recording is running
+	static DkgMetrics jfr() {
+		return JfrMetrics.INSTANCE;
+	}
+
+	static DkgMetrics of(DkgMetrics... listeners) {
+		List<DkgMetrics> all = List.of(listeners);
+		return new DkgMetrics() {
+			@Override
+			public void phaseCompleted(Phase phase, long nanos) {
+				all.forEach(l-> l.phaseCompleted(phase, nanos));
+			}
+
+			@Override
+			public void dealerCompleted(int dealer, long nanos) {
+				all.forEach(l-> l.dealerCompleted(dealer, nanos));
+			}
+
+			@Override
+			public void modPow(int count) {
+				all.forEach(l-> l.modPow(count));
+			}
+
+			@Override
+			public void modInverse(int count) {
+				all.forEach(l-> l.modInverse(count));
+			}
+
+			@Override
+			public void verificationFailed(Phase phase, int dealer, int recipient, String reason) {
+				all.forEach(l-> l.verificationFailed(phase, dealer, recipient, reason));
+			}
+
+			@Override
+			public void transportError(int peer, String reason) {
+				all.forEach(l-> l.transportError(peer, reason));
+			}
+		};
+	}
+}
@@ -0,0 +1,68 @@
+package dkg.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed bucket bounds from 100us to 100s. Recording is a
+ * linear scan over 19 bounds and two LongAdder increments.
+ */
+public final class Histogram {
+
+	static final double[] BOUNDS_SECONDS = {
+			0.0001, 0.00025, 0.0005,
+			0.001, 0.0025, 0.005,
+			0.01, 0.025, 0.05,
+			0.1, 0.25, 0.5,
+			1, 2.5, 5,
+			10, 25, 50,
+			100
+	};
+	private static final long[] BOUNDS_NANOS = new long[BOUNDS_SECONDS.length];
+	static {
+		for(int i=0; i<BOUNDS_SECONDS.length; i++) {
+			BOUNDS_NANOS[i] = Math.round(BOUNDS_SECONDS[i]*1e9);
+		}
+	}
+
+	// the last bucket collects everything above the largest bound
+	private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length+1];
+	private final LongAdder sumNanos = new LongAdder();
+
+	public Histogram() {
+		for(int i=0; i<buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanos) {
+		int i = 0;
+		while(i<BOUNDS_NANOS.length && nanos>BOUNDS_NANOS[i]) {
+			i++;
+		}
+		buckets[i].increment();
+		sumNanos.add(nanos);
+	}
+
+	public long count() {
+		long count = 0;
+		for(LongAdder bucket: buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	public long sumNanos() {
+		return sumNanos.sum();
+	}
+
+	// cumulative counts per bound, the last entry is the total (le="+Inf")
+	public long[] cumulativeCounts() {
+		long[] counts = new long[buckets.length];
+		long running = 0;
+		for(int i=0; i<buckets.length; i++) {
+			running += buckets[i].sum();
+			counts[i] = running;
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,133 @@
+package dkg.metrics;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps histograms and counters in memory and renders them in the Prometheus
+ * text exposition format, e.g. for a /metrics endpoint or a log dump after a run.
+ */
+public final class InMemoryMetrics implements DkgMetrics {
+
+	private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+	private final Map<Integer, Histogram> dealers = new ConcurrentHashMap<>();
+	// keyed by List.of(phase, dealer)
+	private final Map<List<Object>, LongAdder> failures = new ConcurrentHashMap<>();
+	private final Map<Integer, LongAdder> transportErrors = new ConcurrentHashMap<>();
+	private final LongAdder modPows = new LongAdder();
+	private final LongAdder modInverses = new LongAdder();
+
+	public InMemoryMetrics() {
+		for(Phase phase: Phase.values()) {
+			phases.put(phase, new Histogram());
+		}
+	}
+
+	@Override
+	public void phaseCompleted(Phase phase, long nanos) {
+		phases.get(phase).record(nanos);
+	}
+
+	@Override
+	public void dealerCompleted(int dealer, long nanos) {
+		dealers.computeIfAbsent(dealer, d-> new Histogram()).record(nanos);
+	}
+
+	@Override
+	public void modPow(int count) {
+		modPows.add(count);
+	}
+
+	@Override
+	public void modInverse(int count) {
+		modInverses.add(count);
+	}
+
+	@Override
+	public void verificationFailed(Phase phase, int dealer, int recipient, String reason) {
+		failures.computeIfAbsent(List.of(phase, dealer), k-> new LongAdder()).increment();
+	}
+
+	@Override
+	public void transportError(int peer, String reason) {
+		transportErrors.computeIfAbsent(peer, k-> new LongAdder()).increment();
+	}
+
+	public Histogram phaseHistogram(Phase phase) {
+		return phases.get(phase);
+	}
+
+	public Histogram dealerHistogram(int dealer) {
+		return dealers.computeIfAbsent(dealer, d-> new Histogram());
+	}
+
+	public long modPowCount() {
+		return modPows.sum();
+	}
+
+	public long modInverseCount() {
+		return modInverses.sum();
+	}
+
+	public long failureCount(Phase phase, int dealer) {
+		LongAdder count = failures.get(List.of(phase, dealer));
+		return count==null ? 0 : count.sum();
+	}
+
+	public long transportErrorCount(int peer) {
+		LongAdder count = transportErrors.get(peer);
+		return count==null ? 0 : count.sum();
+	}
+
+	public String toPrometheus() {
+		StringBuilder out = new StringBuilder();
+
+		out.append("# HELP dkg_phase_seconds Time spent in a DKG phase.\n");
+		out.append("# TYPE dkg_phase_seconds histogram\n");
+		phases.forEach((phase, histogram)-> appendHistogram(out, "dkg_phase_seconds", "phase=\""+phase.label()+"\"", histogram));
+
+		out.append("# HELP dkg_dealer_seconds Time a dealer took to deal its shares and commitments.\n");
+		out.append("# TYPE dkg_dealer_seconds histogram\n");
+		new TreeMap<>(dealers).forEach((dealer, histogram)-> appendHistogram(out, "dkg_dealer_seconds", "dealer=\""+dealer+"\"", histogram));
+
+		out.append("# HELP dkg_modpow_total Modular exponentiations performed.\n");
+		out.append("# TYPE dkg_modpow_total counter\n");
+		out.append("dkg_modpow_total ").append(modPows.sum()).append('\n');
+
+		out.append("# HELP dkg_modinverse_total Modular inversions performed.\n");
+		out.append("# TYPE dkg_modinverse_total counter\n");
+		out.append("dkg_modinverse_total ").append(modInverses.sum()).append('\n');
+
+		out.append("# HELP dkg_verification_failures_total Failed share, ciphertext and decryption share checks.\n");
+		out.append("# TYPE dkg_verification_failures_total counter\n");
+		failures.forEach((key, count)-> out.append("dkg_verification_failures_total{phase=\"")
+				.append(((Phase)key.get(0)).label())
+				.append("\",dealer=\"").append(key.get(1))
+				.append("\"} ").append(count.sum()).append('\n'));
+
+		out.append("# HELP dkg_transport_errors_total Dropped connections, failed connects and malformed frames.\n");
+		out.append("# TYPE dkg_transport_errors_total counter\n");
+		new TreeMap<>(transportErrors).forEach((peer, count)-> out.append("dkg_transport_errors_total{peer=\"")
+				.append(peer).append("\"} ").append(count.sum()).append('\n'));
+		return out.toString();
+	}
+
+	private static void appendHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+		long[] counts = histogram.cumulativeCounts();
+		for(int i=0; i<Histogram.BOUNDS_SECONDS.length; i++) {
+			out.append(name).append("_bucket{").append(labels)
+					.append(",le=\"").append(Histogram.BOUNDS_SECONDS[i]).append("\"} ")
+					.append(counts[i]).append('\n');
+		}
+		out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ")
+				.append(counts[counts.length-1]).append('\n');
+		out.append(name).append("_sum{").append(labels).append("} ")
+				.append(histogram.sumNanos()/1e9).append('\n');
+		out.append(name).append("_count{").append(labels).append("} ")
+				.append(counts[counts.length-1]).append('\n');
+	}
+}
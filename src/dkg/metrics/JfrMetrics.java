@@ -0,0 +1,109 @@
+package dkg.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// enable with -XX:StartFlightRecording or jcmd <pid> JFR.start; events are in the "DKG" category
+final class JfrMetrics implements DkgMetrics {
+
+	static final JfrMetrics INSTANCE = new JfrMetrics();
+
+	private JfrMetrics() {}
+
+	@Name("dkg.Phase")
+	@Label("DKG Phase")
+	@Category("DKG")
+	static final class PhaseEvent extends Event {
+		@Label("Phase")
+		String phase;
+
+		@Label("Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long nanos;
+	}
+
+	@Name("dkg.Dealer")
+	@Label("DKG Dealer")
+	@Category("DKG")
+	static final class DealerEvent extends Event {
+		@Label("Dealer")
+		int dealer;
+
+		@Label("Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long nanos;
+	}
+
+	@Name("dkg.VerificationFailure")
+	@Label("DKG Verification Failure")
+	@Category("DKG")
+	static final class VerificationFailureEvent extends Event {
+		@Label("Phase")
+		String phase;
+
+		@Label("Dealer")
+		int dealer;
+
+		@Label("Recipient")
+		int recipient;
+
+		@Label("Reason")
+		String reason;
+	}
+
+	@Name("dkg.TransportError")
+	@Label("DKG Transport Error")
+	@Category("DKG")
+	static final class TransportErrorEvent extends Event {
+		@Label("Peer")
+		int peer;
+
+		@Label("Reason")
+		String reason;
+	}
+
+	@Override
+	public void phaseCompleted(Phase phase, long nanos) {
+		PhaseEvent event = new PhaseEvent();
+		if(event.shouldCommit()) {
+			event.phase = phase.label();
+			event.nanos = nanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void dealerCompleted(int dealer, long nanos) {
+		DealerEvent event = new DealerEvent();
+		if(event.shouldCommit()) {
+			event.dealer = dealer;
+			event.nanos = nanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void verificationFailed(Phase phase, int dealer, int recipient, String reason) {
+		VerificationFailureEvent event = new VerificationFailureEvent();
+		if(event.shouldCommit()) {
+			event.phase = phase.label();
+			event.dealer = dealer;
+			event.recipient = recipient;
+			event.reason = reason;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void transportError(int peer, String reason) {
+		TransportErrorEvent event = new TransportErrorEvent();
+		if(event.shouldCommit()) {
+			event.peer = peer;
+			event.reason = reason;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package dkg.metrics;
+
+public enum Phase {
+	DEALING,
+	QUAL,
+	COMPLAINT,
+	SECRET,
+	PUBLIC_VALUE,
+	ENCRYPT,
+	DECRYPT;
+
+	// lower case name used for metric labels and JFR fields
+	public String label() {
+		return name().toLowerCase();
+	}
+}
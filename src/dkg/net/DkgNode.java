@@ -0,0 +1,319 @@
+package dkg.net;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import dkg.PerdersonVss;
+import dkg.PerdersonVssFactory;
+import dkg.group.Group;
+import dkg.metrics.DkgMetrics;
+import dkg.metrics.Phase;
+import dkg.wire.WireCodec;
+
+/**
+ * One participant of a Pedersen VSS run over a Transport. The node broadcasts its
+ * commitments, sends every peer its share pair and verifies each incoming dealer as
+ * soon as both its commitments and its shares have arrived, while the remaining
+ * frames are still in flight. Once all n dealers are checked it broadcasts its
+ * complaints (possibly none); after hearing from every participant QUAL is every
+ * dealer nobody complained about, which is the same set on all honest nodes.
+ *
+ * A dealer whose commitments or shares have not arrived within the timeout after
+ * this node dealt is complained about like an invalid one. Once this node has sent
+ * its complaints, participants still silent after another timeout count as having
+ * complained about nobody, so a crashed peer cannot stall the run.
+ */
+public final class DkgNode implements Transport.FrameHandler {
+
+	public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+	public static final class Result {
+		public final List<Integer> qual;
+		public final BigInteger secret1;
+		public final BigInteger secret2;
+		public final BigInteger publicVal;
+		// from start() until the last complaint arrived
+		public final long nanos;
+
+		Result(List<Integer> qual, BigInteger secret1, BigInteger secret2, BigInteger publicVal, long nanos) {
+			this.qual = qual;
+			this.secret1 = secret1;
+			this.secret2 = secret2;
+			this.publicVal = publicVal;
+			this.nanos = nanos;
+		}
+	}
+
+	private final Transport transport;
+	private final PerdersonVssFactory factory;
+	private final Executor executor;
+	private final long timeoutNanos;
+	private final DkgMetrics metrics;
+	private final WireCodec codec;
+	private final int index;
+	private final int n;
+	private final Group group;
+	private final BigInteger q;
+	private final BigInteger[] shares1;
+	private final BigInteger[] shares2;
+	private final List<List<BigInteger>> commitments1;
+	private final List<List<BigInteger>> commitments;
+	private final Boolean[] verdicts;
+	// verification scheduled, or the dealer's frames were malformed
+	private final boolean[] settled;
+	private final boolean[] complaintFrom;
+	private final Set<Integer> complained = new TreeSet<>();
+	private final CompletableFuture<Result> result = new CompletableFuture<>();
+	private int verifiedCount;
+	private int complaintCount;
+	private PerdersonVss dealer;
+	private long start;
+
+	public DkgNode(Transport transport, PerdersonVssFactory factory) {
+		this(transport, factory, factory.getScheduler());
+	}
+
+	// executor runs share verification, off the transport's delivery thread
+	public DkgNode(Transport transport, PerdersonVssFactory factory, Executor executor) {
+		this(transport, factory, executor, DEFAULT_TIMEOUT);
+	}
+
+	public DkgNode(Transport transport, PerdersonVssFactory factory, Executor executor, Duration timeout) {
+		if(timeout.isNegative() || timeout.isZero()) {
+			throw new IllegalArgumentException("timeout must be positive");
+		}
+		this.transport = transport;
+		this.factory = factory;
+		this.executor = executor;
+		this.timeoutNanos = timeout.toNanos();
+		this.metrics = factory.getMetrics();
+		this.index = transport.index();
+		this.n = transport.size();
+		this.group = factory.getParams().getGroup();
+		this.q = factory.getParams().getQ();
+		this.codec = new WireCodec(factory.getParams());
+		this.shares1 = new BigInteger[n];
+		this.shares2 = new BigInteger[n];
+		this.commitments1 = new ArrayList<>(Collections.nCopies(n, null));
+		this.commitments = new ArrayList<>(Collections.nCopies(n, null));
+		this.verdicts = new Boolean[n];
+		this.settled = new boolean[n];
+		this.complaintFrom = new boolean[n];
+	}
+
+	public CompletableFuture<Result> start() throws IOException {
+		synchronized(this) {
+			this.start = System.nanoTime();
+		}
+		// listen before dealing so that peers can connect meanwhile
+		transport.start(this);
+		PerdersonVss dealer = factory.get();
+		synchronized(this) {
+			this.dealer = dealer;
+		}
+		after(this::dealersDue);
+
+		ByteBuffer commitmentFrame = Messages.commitment(codec, dealer.publicVals1, dealer.publicVals2);
+		transport.broadcast(commitmentFrame);
+		dealer.streamShares((j, share1, share2)-> {
+			if(j!=index) {
+				transport.send(j, Messages.deal(codec, share1, share2));
+			}
+		});
+		onFrame(index, commitmentFrame);
+		onFrame(index, Messages.deal(codec, dealer.share1(index), dealer.share2(index)));
+		return result;
+	}
+
+	// this node's own dealing; its final secrets are set once the run completes
+	public synchronized PerdersonVss dealer() {
+		return dealer;
+	}
+
+	@Override
+	public void onFrame(int from, ByteBuffer frame) {
+		if(from<0 || from>=n) {
+			return;
+		}
+		if(!frame.hasRemaining()) {
+			metrics.transportError(from, "empty frame");
+			return;
+		}
+		ByteBuffer in = frame.duplicate();
+		byte type = in.get();
+		try {
+			switch(type) {
+			case Messages.DEAL:
+				BigInteger[] pair = codec.getSharePair(in);
+				onDeal(from, pair[0], pair[1]);
+				break;
+			case Messages.COMMITMENT:
+				onCommitment(from, codec.getElements(in), codec.getElements(in));
+				break;
+			case Messages.COMPLAINT:
+				onComplaint(from, Messages.getComplaint(in));
+				break;
+			default:
+				metrics.transportError(from, "unknown frame type "+type);
+			}
+		} catch(RuntimeException e) {
+			// a dealer whose deal or commitments cannot be decoded is complained about
+			if(type==Messages.DEAL || type==Messages.COMMITMENT) {
+				reject(from);
+			} else {
+				metrics.transportError(from, "malformed frame: "+e);
+			}
+		}
+	}
+
+	private synchronized void onDeal(int from, BigInteger share1, BigInteger share2) {
+		if(shares1[from]!=null) {
+			return;
+		}
+		shares1[from] = share1;
+		shares2[from] = share2;
+		if(commitments.get(from)!=null) {
+			scheduleVerification(from);
+		}
+	}
+
+	private synchronized void onCommitment(int from, List<BigInteger> publicVals1, List<BigInteger> publicVals2) {
+		if(commitments.get(from)!=null) {
+			return;
+		}
+		if(publicVals1.size()!=publicVals2.size()) {
+			throw new IllegalArgumentException("commitment vectors differ in length");
+		}
+		commitments1.set(from, publicVals1);
+		commitments.set(from, IntStream.range(0,publicVals1.size())
+				.mapToObj(i-> group.mul(publicVals1.get(i), publicVals2.get(i)))
+				.collect(Collectors.toList()));
+		if(shares1[from]!=null) {
+			scheduleVerification(from);
+		}
+	}
+
+	private void reject(int j) {
+		synchronized(this) {
+			if(settled[j]) {
+				return;
+			}
+			settled[j] = true;
+		}
+		verified(j, false);
+	}
+
+	// called with the lock held
+	private void scheduleVerification(int j) {
+		if(settled[j]) {
+			return;
+		}
+		settled[j] = true;
+		BigInteger share1 = shares1[j];
+		BigInteger share2 = shares2[j];
+		List<BigInteger> publicVals = commitments.get(j);
+		executor.execute(()-> {
+			boolean valid;
+			try {
+				valid = factory.verifyPublicValsFirstStage(index+1, share1, share2, publicVals);
+			} catch(RuntimeException e) {
+				valid = false;
+			}
+			verified(j, valid);
+		});
+	}
+
+	private void verified(int j, boolean valid) {
+		List<Integer> complaints;
+		synchronized(this) {
+			verdicts[j] = valid;
+			if(++verifiedCount<n) {
+				return;
+			}
+			complaints = IntStream.range(0,n)
+					.filter(i-> !verdicts[i])
+					.boxed()
+					.collect(Collectors.toList());
+		}
+		transport.broadcast(Messages.complaint(complaints));
+		onComplaint(index, complaints);
+		after(this::complaintsDue);
+	}
+
+	private void after(Runnable action) {
+		CompletableFuture.delayedExecutor(timeoutNanos, TimeUnit.NANOSECONDS, executor).execute(action);
+	}
+
+	private void dealersDue() {
+		List<Integer> missing;
+		synchronized(this) {
+			missing = IntStream.range(0,n)
+					.filter(j-> !settled[j])
+					.boxed()
+					.collect(Collectors.toList());
+		}
+		for(int j: missing) {
+			metrics.verificationFailed(Phase.QUAL, j, index, "no commitments or shares before the timeout");
+			reject(j);
+		}
+	}
+
+	private void complaintsDue() {
+		List<Integer> silent;
+		synchronized(this) {
+			silent = IntStream.range(0,n)
+					.filter(i-> !complaintFrom[i])
+					.boxed()
+					.collect(Collectors.toList());
+		}
+		for(int i: silent) {
+			metrics.transportError(i, "no complaints before the timeout");
+			onComplaint(i, List.of());
+		}
+	}
+
+	private void onComplaint(int from, List<Integer> dealers) {
+		Result done;
+		synchronized(this) {
+			if(complaintFrom[from]) {
+				return;
+			}
+			complaintFrom[from] = true;
+			complained.addAll(dealers);
+			if(++complaintCount<n || verifiedCount<n) {
+				return;
+			}
+			done = finish();
+		}
+		result.complete(done);
+	}
+
+	// all shares and commitments are present once this node has verified every dealer
+	private Result finish() {
+		List<Integer> qual = IntStream.range(0,n)
+				.filter(j-> !complained.contains(j))
+				.boxed()
+				.collect(Collectors.toList());
+		BigInteger secret1 = qual.stream().map(j-> shares1[j]).reduce(BigInteger.ZERO, BigInteger::add).mod(q);
+		BigInteger secret2 = qual.stream().map(j-> shares2[j]).reduce(BigInteger.ZERO, BigInteger::add).mod(q);
+		BigInteger publicVal = group.product(qual.stream()
+				.map(j-> commitments1.get(j).get(0))
+				.collect(Collectors.toList()));
+		dealer.setFinalSecret1(secret1);
+		dealer.setFinalSecret2(secret2);
+		dealer.setFinalPublicVal(publicVal);
+		return new Result(List.copyOf(qual), secret1, secret2, publicVal, System.nanoTime()-start);
+	}
+}
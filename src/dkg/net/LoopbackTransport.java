@@ -0,0 +1,81 @@
+package dkg.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs n participants in one JVM. Every frame is copied on send, as it would be
+ * by a socket, and handed to the receiver's own delivery thread, so handlers of
+ * one participant never run concurrently.
+ */
+public final class LoopbackTransport implements Transport {
+
+	private final int index;
+	private final List<LoopbackTransport> network;
+	private final ExecutorService delivery;
+	private FrameHandler handler;
+	private List<Runnable> early = new ArrayList<>();
+
+	private LoopbackTransport(int index, List<LoopbackTransport> network) {
+		this.index = index;
+		this.network = network;
+		this.delivery = Executors.newSingleThreadExecutor(r-> {
+			Thread thread = new Thread(r, "dkg-loopback-"+index);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public static List<Transport> network(int n) {
+		List<LoopbackTransport> network = new ArrayList<>(n);
+		for(int i=0; i<n; i++) {
+			network.add(new LoopbackTransport(i, network));
+		}
+		return List.copyOf(network);
+	}
+
+	@Override
+	public int index() {
+		return index;
+	}
+
+	@Override
+	public int size() {
+		return network.size();
+	}
+
+	@Override
+	public void start(FrameHandler handler) {
+		synchronized(this) {
+			this.handler = handler;
+			early.forEach(delivery::execute);
+			early = null;
+		}
+	}
+
+	@Override
+	public void send(int to, ByteBuffer frame) {
+		ByteBuffer copy = ByteBuffer.allocate(frame.remaining());
+		copy.put(frame.duplicate()).flip();
+		network.get(to).deliver(index, copy);
+	}
+
+	private void deliver(int from, ByteBuffer frame) {
+		Runnable task = ()-> handler.onFrame(from, frame);
+		synchronized(this) {
+			if(early!=null) {
+				early.add(task);
+			} else {
+				delivery.execute(task);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		delivery.shutdownNow();
+	}
+}
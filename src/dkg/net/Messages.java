@@ -0,0 +1,54 @@
+package dkg.net;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import dkg.wire.WireCodec;
+
+// frame layout: [type:1] then the WireCodec encoding of the payload
+final class Messages {
+
+	static final byte DEAL = 1;
+	static final byte COMMITMENT = 2;
+	static final byte COMPLAINT = 3;
+
+	private Messages() {}
+
+	static ByteBuffer deal(WireCodec codec, BigInteger share1, BigInteger share2) {
+		ByteBuffer frame = ByteBuffer.allocate(1+codec.sharePairSize());
+		frame.put(DEAL);
+		codec.putSharePair(frame, share1, share2);
+		return frame.flip();
+	}
+
+	// [type][elements publicVals1][elements publicVals2]
+	static ByteBuffer commitment(WireCodec codec, List<BigInteger> publicVals1, List<BigInteger> publicVals2) {
+		ByteBuffer frame = ByteBuffer.allocate(1+codec.elementsSize(publicVals1.size())+codec.elementsSize(publicVals2.size()));
+		frame.put(COMMITMENT);
+		codec.putElements(frame, publicVals1);
+		codec.putElements(frame, publicVals2);
+		return frame.flip();
+	}
+
+	// [type][count:4][dealer:4]*count
+	static ByteBuffer complaint(List<Integer> dealers) {
+		ByteBuffer frame = ByteBuffer.allocate(1+4+4*dealers.size());
+		frame.put(COMPLAINT).putInt(dealers.size());
+		dealers.forEach(frame::putInt);
+		return frame.flip();
+	}
+
+	static List<Integer> getComplaint(ByteBuffer in) {
+		int count = in.getInt();
+		if(count<0 || 4L*count>in.remaining()) {
+			throw new IllegalArgumentException("complaint count out of range: "+count);
+		}
+		List<Integer> dealers = new ArrayList<>(count);
+		for(int i=0; i<count; i++) {
+			dealers.add(in.getInt());
+		}
+		return dealers;
+	}
+}
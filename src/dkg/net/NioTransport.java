@@ -0,0 +1,378 @@
+package dkg.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import dkg.metrics.DkgMetrics;
+
+/**
+ * TCP transport driven by one selector thread. Every participant listens on its
+ * own address and opens one outgoing connection per peer on first send; the
+ * connection starts with the sender's index, then carries frames prefixed with
+ * their length. Complete frames are handed to the handler as soon as their last
+ * byte is read, so processing overlaps with the rest of the transfer. The handler
+ * runs on the selector thread and should hand heavy work to another executor.
+ *
+ * A connection that drops is reopened on the next send or right away when frames
+ * are queued; frames not completely written go out again in full. Frames longer
+ * than MAX_FRAME close the connection they came on. Failures are reported to the
+ * metrics listener.
+ *
+ * Connections are neither encrypted nor authenticated. The only check on the
+ * sender's index is that the connection comes from the host listed for it, which
+ * does not separate participants sharing a host, so the transport assumes a
+ * trusted network between the participants.
+ */
+public final class NioTransport implements Transport {
+
+	private static final int READ_BUFFER = 64*1024;
+	public static final int MAX_FRAME = 32*1024*1024;
+	private static final int CONNECT_RETRIES = 600;
+	private static final long RETRY_MILLIS = 50;
+
+	private final int index;
+	private final List<InetSocketAddress> peers;
+	private final DkgMetrics metrics;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final Outbound[] outbound;
+	private volatile Selector selector;
+	private volatile boolean running;
+	private ServerSocketChannel server;
+	private Thread loop;
+	private FrameHandler handler;
+
+	public NioTransport(int index, List<InetSocketAddress> peers) {
+		this(index, peers, DkgMetrics.NOOP);
+	}
+
+	public NioTransport(int index, List<InetSocketAddress> peers, DkgMetrics metrics) {
+		if(index<0 || index>=peers.size()) {
+			throw new IllegalArgumentException("index out of range");
+		}
+		this.index = index;
+		this.peers = List.copyOf(peers);
+		this.metrics = metrics;
+		this.outbound = new Outbound[peers.size()];
+	}
+
+	@Override
+	public int index() {
+		return index;
+	}
+
+	@Override
+	public int size() {
+		return peers.size();
+	}
+
+	@Override
+	public synchronized void start(FrameHandler handler) throws IOException {
+		this.handler = handler;
+		Selector selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		server.bind(peers.get(index));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		running = true;
+		this.selector = selector;
+		loop = new Thread(this::run, "dkg-nio-"+index);
+		loop.setDaemon(true);
+		loop.start();
+	}
+
+	@Override
+	public void send(int to, ByteBuffer frame) {
+		if(to<0 || to>=peers.size()) {
+			throw new IllegalArgumentException("peer out of range");
+		}
+		if(frame.remaining()>MAX_FRAME) {
+			throw new IllegalArgumentException("frame longer than "+MAX_FRAME+" bytes");
+		}
+		ByteBuffer framed = ByteBuffer.allocate(4+frame.remaining());
+		framed.putInt(frame.remaining()).put(frame.duplicate()).flip();
+		tasks.add(()-> outbound(to).enqueue(framed));
+		Selector selector = this.selector;
+		if(selector!=null) {
+			selector.wakeup();
+		}
+	}
+
+	private Outbound outbound(int to) {
+		if(outbound[to]==null) {
+			outbound[to] = new Outbound(to);
+		}
+		return outbound[to];
+	}
+
+	private void run() {
+		while(running) {
+			try {
+				Runnable task;
+				while((task = tasks.poll())!=null) {
+					task.run();
+				}
+				long now = System.currentTimeMillis();
+				boolean retrying = false;
+				for(Outbound out: outbound) {
+					if(out!=null && out.channel==null && !out.queue.isEmpty()) {
+						if(now>=out.retryAt) {
+							out.connect();
+						} else {
+							retrying = true;
+						}
+					}
+				}
+				selector.select(retrying ? RETRY_MILLIS : 0);
+				for(SelectionKey key: selector.selectedKeys()) {
+					try {
+						handle(key);
+					} catch(IOException | RuntimeException e) {
+						drop(key, e);
+					}
+				}
+				selector.selectedKeys().clear();
+			} catch(IOException e) {
+				metrics.transportError(-1, "selector failed: "+e);
+				running = false;
+			}
+		}
+	}
+
+	private void drop(SelectionKey key, Exception e) {
+		Object attachment = key.attachment();
+		if(attachment instanceof Outbound) {
+			((Outbound)attachment).reset(e);
+			return;
+		}
+		key.cancel();
+		if(attachment instanceof Inbound) {
+			metrics.transportError(((Inbound)attachment).from, "connection dropped: "+e);
+			try {
+				key.channel().close();
+			} catch(IOException ignored) {
+			}
+		} else {
+			metrics.transportError(-1, "accept failed: "+e);
+		}
+	}
+
+	private void handle(SelectionKey key) throws IOException {
+		if(!key.isValid()) {
+			return;
+		}
+		if(key.isAcceptable()) {
+			SocketChannel channel = server.accept();
+			if(channel!=null) {
+				channel.configureBlocking(false);
+				channel.register(selector, SelectionKey.OP_READ, new Inbound());
+			}
+			return;
+		}
+		Object attachment = key.attachment();
+		if(attachment instanceof Inbound) {
+			((Inbound)attachment).read(key);
+		} else {
+			Outbound out = (Outbound)attachment;
+			if(key.isConnectable()) {
+				out.finishConnect();
+			} else if(key.isWritable()) {
+				out.write();
+			}
+		}
+	}
+
+	private final class Outbound {
+		final int to;
+		final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+		SocketChannel channel;
+		SelectionKey key;
+		ByteBuffer hello;
+		int retries;
+		long retryAt;
+
+		Outbound(int to) {
+			this.to = to;
+		}
+
+		void enqueue(ByteBuffer frame) {
+			queue.add(frame);
+			if(channel==null) {
+				if(System.currentTimeMillis()>=retryAt) {
+					connect();
+				}
+			} else if(channel.isConnected()) {
+				key.interestOps(SelectionKey.OP_WRITE);
+			}
+		}
+
+		void connect() {
+			try {
+				channel = SocketChannel.open();
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				hello = ByteBuffer.allocate(4);
+				hello.putInt(index).flip();
+				queue.addFirst(hello);
+				boolean connected = channel.connect(peers.get(to));
+				key = channel.register(selector, connected ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT, this);
+				if(connected) {
+					retries = 0;
+				}
+			} catch(IOException e) {
+				retry(e);
+			}
+		}
+
+		void finishConnect() {
+			try {
+				channel.finishConnect();
+				key.interestOps(SelectionKey.OP_WRITE);
+				retries = 0;
+			} catch(IOException e) {
+				retry(e);
+			}
+		}
+
+		// the peer may not be listening yet; nothing but the hello has been written at this point
+		private void retry(IOException e) {
+			close();
+			queue.pollFirst();
+			if(++retries>CONNECT_RETRIES) {
+				metrics.transportError(to, "cannot connect: "+e);
+				queue.clear();
+				return;
+			}
+			retryAt = System.currentTimeMillis()+RETRY_MILLIS;
+		}
+
+		// the connection dropped; the frame being written goes out again in full on a new one
+		void reset(Exception e) {
+			metrics.transportError(to, "connection dropped: "+e);
+			ByteBuffer head = queue.peekFirst();
+			if(head==hello) {
+				queue.pollFirst();
+			} else if(head!=null) {
+				head.rewind();
+			}
+			close();
+			retryAt = System.currentTimeMillis()+RETRY_MILLIS;
+		}
+
+		void write() throws IOException {
+			while(!queue.isEmpty()) {
+				ByteBuffer head = queue.peekFirst();
+				channel.write(head);
+				if(head.hasRemaining()) {
+					return;
+				}
+				queue.pollFirst();
+			}
+			key.interestOps(0);
+		}
+
+		void close() {
+			if(key!=null) {
+				key.cancel();
+			}
+			try {
+				if(channel!=null) {
+					channel.close();
+				}
+			} catch(IOException ignored) {
+			}
+			channel = null;
+			key = null;
+			hello = null;
+		}
+	}
+
+	private static boolean sameHost(InetAddress expected, InetAddress remote) {
+		return remote.equals(expected)
+				|| (remote.isLoopbackAddress() && expected!=null && expected.isLoopbackAddress());
+	}
+
+	private final class Inbound {
+		int from = -1;
+		ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+
+		void read(SelectionKey key) throws IOException {
+			SocketChannel channel = (SocketChannel)key.channel();
+			if(channel.read(buffer)<0) {
+				key.cancel();
+				channel.close();
+				return;
+			}
+			buffer.flip();
+			if(from<0) {
+				if(buffer.remaining()<4) {
+					buffer.compact();
+					return;
+				}
+				int sender = buffer.getInt();
+				if(sender<0 || sender>=peers.size()) {
+					throw new IOException("sender index "+sender+" out of range");
+				}
+				InetAddress remote = ((InetSocketAddress)channel.getRemoteAddress()).getAddress();
+				if(!sameHost(peers.get(sender).getAddress(), remote)) {
+					throw new IOException("sender index "+sender+" claimed from "+remote);
+				}
+				from = sender;
+			}
+			while(buffer.remaining()>=4) {
+				int length = buffer.getInt(buffer.position());
+				if(length<0 || length>MAX_FRAME) {
+					throw new IOException("frame length "+length+" out of range");
+				}
+				if(buffer.remaining()<4+length) {
+					if(4+length>buffer.capacity()) {
+						ByteBuffer larger = ByteBuffer.allocate(Math.max(4+length, 2*buffer.capacity()));
+						larger.put(buffer);
+						buffer = larger;
+						return;
+					}
+					break;
+				}
+				int start = buffer.position()+4;
+				try {
+					handler.onFrame(from, buffer.slice(start, length));
+				} catch(RuntimeException e) {
+					// the framing is intact, so the connection stays usable
+					metrics.transportError(from, "frame handler failed: "+e);
+				}
+				buffer.position(start+length);
+			}
+			buffer.compact();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		running = false;
+		Selector selector = this.selector;
+		if(selector==null || !selector.isOpen()) {
+			return;
+		}
+		selector.wakeup();
+		try {
+			loop.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for(SelectionKey key: selector.keys()) {
+			key.channel().close();
+		}
+		selector.close();
+	}
+}
@@ -0,0 +1,38 @@
+package dkg.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Point to point frame delivery between the n participants of a run. Participants
+ * are numbered 0..n-1 like the host indices of PerdersonVssFactory. Frames between
+ * one pair of participants arrive in the order they were sent.
+ */
+public interface Transport extends AutoCloseable {
+
+	interface FrameHandler {
+		// the frame is only valid for the duration of the call
+		void onFrame(int from, ByteBuffer frame);
+	}
+
+	int index();
+
+	int size();
+
+	// frames that arrive before start are held back until the handler is set
+	void start(FrameHandler handler) throws IOException;
+
+	// frame is read from its position to its limit; the caller may reuse it after send returns
+	void send(int to, ByteBuffer frame);
+
+	default void broadcast(ByteBuffer frame) {
+		for(int to=0; to<size(); to++) {
+			if(to!=index()) {
+				send(to, frame.duplicate());
+			}
+		}
+	}
+
+	@Override
+	void close() throws IOException;
+}
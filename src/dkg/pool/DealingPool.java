@@ -0,0 +1,96 @@
+package dkg.pool;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import dkg.PerdersonVss;
+import dkg.PerdersonVssFactory;
+
+/**
+ * Dealers made ahead of time with {@link PerdersonVssFactory#prepare()}: coefficients
+ * drawn, shares evaluated into their packed rows and commitments exponentiated, so
+ * that taking one when a round starts costs a queue poll. Preparation runs on the
+ * factory's scheduler unless another executor is given; at most capacity dealers
+ * are held or being prepared at any time. A dealer's dealerCompleted metric is
+ * reported when it is handed out, the k-th dealer handed out counting as dealer
+ * k mod n like with factory.get().
+ *
+ * <pre>
+ * DealingPool pool = new DealingPool(factory, n, RefillPolicy.lowWatermark(n/4));
+ * List&lt;PerdersonVss&gt; dkgPoints = Stream.generate(pool).limit(n).collect(Collectors.toList());
+ * </pre>
+ */
+public final class DealingPool implements Supplier<PerdersonVss>, AutoCloseable {
+
+	private final PerdersonVssFactory factory;
+	private final PrecomputedPool<PerdersonVss> pool;
+	private final AtomicLong handedOut = new AtomicLong();
+
+	public DealingPool(PerdersonVssFactory factory, int capacity, RefillPolicy policy) {
+		this(factory, capacity, policy, factory.getScheduler());
+	}
+
+	// starts filling right away as far as the policy asks for
+	public DealingPool(PerdersonVssFactory factory, int capacity, RefillPolicy policy, Executor executor) {
+		this.factory = factory;
+		this.pool = new PrecomputedPool<>(factory::prepare, capacity, policy, executor);
+		pool.refill();
+	}
+
+	// a prepared dealer, or one dealt on the calling thread when none is ready
+	@Override
+	public PerdersonVss get() {
+		return handOut(pool.get());
+	}
+
+	// a prepared dealer, waiting for one being prepared, or dealt on the calling thread when
+	// none is; throws IllegalStateException once the pool is closed
+	public PerdersonVss take() throws InterruptedException {
+		return handOut(pool.take());
+	}
+
+	private PerdersonVss handOut(PerdersonVss dealer) {
+		int index = (int)(handedOut.getAndIncrement()%factory.getN());
+		factory.getMetrics().dealerCompleted(index, dealer.dealNanos());
+		return dealer;
+	}
+
+	// prepares up to count more dealers, whatever the policy says
+	public void prepare(int count) {
+		pool.prepare(count);
+	}
+
+	public int available() {
+		return pool.available();
+	}
+
+	public int preparing() {
+		return pool.preparing();
+	}
+
+	public int capacity() {
+		return pool.capacity();
+	}
+
+	// dealers taken from the pool
+	public long hits() {
+		return pool.hits();
+	}
+
+	// dealers get() had to deal on the spot
+	public long misses() {
+		return pool.misses();
+	}
+
+	@Override
+	public void close() {
+		pool.close();
+	}
+
+	@Override
+	public String toString() {
+		return "DealingPool[available="+available()+", preparing="+preparing()+", capacity="+capacity()
+				+", hits="+hits()+", misses="+misses()+"]";
+	}
+}
@@ -0,0 +1,94 @@
+package dkg.pool;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import dkg.EncryptionCoupon;
+import dkg.PerdersonVssFactory;
+
+/**
+ * Encryption coupons for one public value made ahead of time, so that
+ * {@link #encrypt} is left with the online part: two hashes, an xor and a
+ * multiply-add. All five exponentiations, publicVal^r on a fixed-base table of its
+ * own, run on the factory's scheduler unless another executor is given. Every
+ * coupon is handed out once. The table is not shared with the group's cache and
+ * goes away with the pool.
+ */
+public final class EncryptionCouponPool implements AutoCloseable {
+
+	private final PerdersonVssFactory factory;
+	private final BigInteger publicVal;
+	private final PrecomputedPool<EncryptionCoupon> pool;
+
+	public EncryptionCouponPool(PerdersonVssFactory factory, BigInteger publicVal, int capacity, RefillPolicy policy) {
+		this(factory, publicVal, capacity, policy, factory.getScheduler());
+	}
+
+	// starts filling right away as far as the policy asks for
+	public EncryptionCouponPool(PerdersonVssFactory factory, BigInteger publicVal, int capacity, RefillPolicy policy,
+			Executor executor) {
+		this.factory = factory;
+		this.publicVal = publicVal;
+		this.pool = new PrecomputedPool<>(factory.encryptionCoupons(publicVal), capacity, policy, executor);
+		pool.refill();
+	}
+
+	public BigInteger publicVal() {
+		return publicVal;
+	}
+
+	// ciphertext [c, L, u, _u, e, f] of m under the pool's public value
+	public List<BigInteger> encrypt(BigInteger m, BigInteger L) {
+		return factory.encrypt(m, L, pool.get());
+	}
+
+	// a prepared coupon, or one made on the calling thread when none is ready
+	public EncryptionCoupon get() {
+		return pool.get();
+	}
+
+	// a prepared coupon, waiting for one being prepared, or made on the calling thread when
+	// none is; throws IllegalStateException once the pool is closed
+	public EncryptionCoupon take() throws InterruptedException {
+		return pool.take();
+	}
+
+	// prepares up to count more coupons, whatever the policy says
+	public void prepare(int count) {
+		pool.prepare(count);
+	}
+
+	public int available() {
+		return pool.available();
+	}
+
+	public int preparing() {
+		return pool.preparing();
+	}
+
+	public int capacity() {
+		return pool.capacity();
+	}
+
+	// coupons taken from the pool
+	public long hits() {
+		return pool.hits();
+	}
+
+	// coupons get() or encrypt had to make on the spot
+	public long misses() {
+		return pool.misses();
+	}
+
+	@Override
+	public void close() {
+		pool.close();
+	}
+
+	@Override
+	public String toString() {
+		return "EncryptionCouponPool[available="+available()+", preparing="+preparing()+", capacity="+capacity()
+				+", hits="+hits()+", misses="+misses()+"]";
+	}
+}
@@ -0,0 +1,156 @@
+package dkg.pool;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue of items made ahead of time on an executor. Items ready plus items
+ * being prepared never exceed the capacity, so memory is bounded by capacity items.
+ * A background failure is not retried; it is thrown from the next get or take.
+ */
+final class PrecomputedPool<T> implements AutoCloseable {
+	private static final long WAIT_MILLIS = 50;
+
+	private final Supplier<T> producer;
+	private final int capacity;
+	private final RefillPolicy policy;
+	private final Executor executor;
+	private final ArrayBlockingQueue<T> ready;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private int preparing;
+	private volatile RuntimeException failure;
+	private volatile boolean closed;
+
+	PrecomputedPool(Supplier<T> producer, int capacity, RefillPolicy policy, Executor executor) {
+		if(capacity<1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.producer = producer;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.executor = executor;
+		this.ready = new ArrayBlockingQueue<>(capacity);
+	}
+
+	// a prepared item, or one made on the calling thread when none is ready
+	T get() {
+		T item = ready.poll();
+		if(item!=null) {
+			hits.increment();
+		} else {
+			rethrow();
+			misses.increment();
+			item = producer.get();
+		}
+		refill();
+		return item;
+	}
+
+	// a prepared item, waiting for one being prepared; made on the calling thread when none
+	// is, e.g. under a manual policy. Throws once the pool is closed, also while waiting.
+	T take() throws InterruptedException {
+		refill();
+		while(true) {
+			if(closed) {
+				throw new IllegalStateException("pool closed");
+			}
+			rethrow();
+			T item = ready.poll();
+			if(item==null && preparing()==0) {
+				misses.increment();
+				return producer.get();
+			}
+			if(item==null) {
+				item = ready.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			if(item!=null) {
+				hits.increment();
+				refill();
+				return item;
+			}
+		}
+	}
+
+	private void rethrow() {
+		RuntimeException e = failure;
+		if(e!=null) {
+			failure = null;
+			throw new IllegalStateException("background preparation failed", e);
+		}
+	}
+
+	// starts preparing up to count more items, within the capacity
+	void prepare(int count) {
+		start(count, false);
+	}
+
+	void refill() {
+		start(policy.toPrepare(ready.size(), capacity), true);
+	}
+
+	// items already being prepared count towards what the policy asked for
+	private void start(int count, boolean policyCount) {
+		int started;
+		synchronized(this) {
+			if(closed) {
+				return;
+			}
+			int wanted = policyCount ? count-preparing : count;
+			started = Math.max(0, Math.min(wanted, capacity-ready.size()-preparing));
+			preparing += started;
+		}
+		for(int i=0; i<started; i++) {
+			executor.execute(this::prepareOne);
+		}
+	}
+
+	private void prepareOne() {
+		boolean prepared = false;
+		try {
+			if(!closed) {
+				T item = producer.get();
+				prepared = !closed && ready.offer(item);
+			}
+		} catch(RuntimeException e) {
+			failure = e;
+		} finally {
+			synchronized(this) {
+				preparing--;
+			}
+		}
+		if(prepared) {
+			refill();
+		}
+	}
+
+	int available() {
+		return ready.size();
+	}
+
+	synchronized int preparing() {
+		return preparing;
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+	long hits() {
+		return hits.sum();
+	}
+
+	long misses() {
+		return misses.sum();
+	}
+
+	// stops refilling and drops the prepared items; take fails from now on
+	@Override
+	public void close() {
+		closed = true;
+		ready.clear();
+	}
+}
@@ -0,0 +1,27 @@
+package dkg.pool;
+
+/**
+ * Decides how many items a pool prepares in the background. Asked after every take
+ * and every finished item with the number of items ready; the pool counts items
+ * still being prepared against the answer and never goes above its capacity.
+ */
+@FunctionalInterface
+public interface RefillPolicy {
+
+	int toPrepare(int ready, int capacity);
+
+	// keeps the pool full
+	static RefillPolicy eager() {
+		return (ready, capacity)-> capacity-ready;
+	}
+
+	// fills the pool up once no more than lowWatermark items are left
+	static RefillPolicy lowWatermark(int lowWatermark) {
+		return (ready, capacity)-> ready<=lowWatermark ? capacity-ready : 0;
+	}
+
+	// only explicit prepare calls fill the pool
+	static RefillPolicy manual() {
+		return (ready, capacity)-> 0;
+	}
+}
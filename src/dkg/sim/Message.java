@@ -0,0 +1,46 @@
+package dkg.sim;
+
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import dkg.PerdersonVss;
+
+// a frame in flight; it becomes available to the receiver at deliverAt
+final class Message implements Delayed {
+	static final int DEALING = 0;
+	static final int COMPLAINT = 1;
+
+	final int type;
+	final int from;
+	// the sender's dealing, read by reference instead of being encoded
+	final PerdersonVss dealing;
+	final List<Integer> complaints;
+	private final long deliverAt;
+
+	private Message(int type, int from, PerdersonVss dealing, List<Integer> complaints, long deliverAt) {
+		this.type = type;
+		this.from = from;
+		this.dealing = dealing;
+		this.complaints = complaints;
+		this.deliverAt = deliverAt;
+	}
+
+	static Message dealing(int from, PerdersonVss dealing, long deliverAt) {
+		return new Message(DEALING, from, dealing, null, deliverAt);
+	}
+
+	static Message complaint(int from, List<Integer> complaints, long deliverAt) {
+		return new Message(COMPLAINT, from, null, complaints, deliverAt);
+	}
+
+	@Override
+	public long getDelay(TimeUnit unit) {
+		return unit.convert(deliverAt-System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public int compareTo(Delayed other) {
+		return Long.compare(deliverAt, ((Message)other).deliverAt);
+	}
+}
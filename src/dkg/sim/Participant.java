@@ -0,0 +1,132 @@
+package dkg.sim;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.DelayQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import dkg.PerdersonVss;
+import dkg.PerdersonVssFactory;
+import dkg.group.Group;
+
+/**
+ * One simulated participant. It runs on its own thread and only sees the world
+ * through its mailbox: it deals, verifies every dealing addressed to it as it
+ * arrives, broadcasts its complaints and, once all n complaint messages are in,
+ * derives QUAL, its final secrets and the public key.
+ */
+final class Participant implements Runnable {
+
+	private final Simulation simulation;
+	private final PerdersonVssFactory factory;
+	private final Group group;
+	private final BigInteger q;
+	private final int index;
+	private final int n;
+	final DelayQueue<Message> mailbox = new DelayQueue<>();
+	private final PerdersonVss[] dealings;
+	private final boolean[] valid;
+	private final Set<Integer> complained = new TreeSet<>();
+	private int verifiedCount;
+	private int complaintCount;
+	private PerdersonVss dealer;
+
+	// nanos since the simulation started
+	long dealtAt;
+	long qualAt;
+	long doneAt;
+	List<Integer> qual;
+	BigInteger publicKey;
+	Throwable failure;
+
+	Participant(Simulation simulation, PerdersonVssFactory factory, int index, int n) {
+		this.simulation = simulation;
+		this.factory = factory;
+		this.group = factory.getParams().getGroup();
+		this.q = factory.getParams().getQ();
+		this.index = index;
+		this.n = n;
+		this.dealings = new PerdersonVss[n];
+		this.valid = new boolean[n];
+	}
+
+	@Override
+	public void run() {
+		try {
+			simulation.awaitStart();
+			dealer = factory.get();
+			dealtAt = simulation.elapsed();
+			simulation.broadcast(index, deliverAt-> Message.dealing(index, dealer, deliverAt));
+			onDealing(index, dealer);
+			while(qual==null) {
+				Message message = mailbox.take();
+				if(message.type==Message.DEALING) {
+					onDealing(message.from, message.dealing);
+				} else {
+					onComplaint(message.from, message.complaints);
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(RuntimeException | Error e) {
+			failure = e;
+		} finally {
+			simulation.finished(this);
+		}
+	}
+
+	private void onDealing(int from, PerdersonVss dealing) {
+		dealings[from] = dealing;
+		boolean ok;
+		try {
+			ok = factory.verifyPublicValsFirstStage(index+1,
+					dealing.shares1.get(index),
+					dealing.shares2.get(index),
+					dealing.publicVals);
+		} catch(RuntimeException e) {
+			ok = false;
+		}
+		valid[from] = ok;
+		if(++verifiedCount<n) {
+			return;
+		}
+		qualAt = simulation.elapsed();
+		List<Integer> complaints = IntStream.range(0,n)
+				.filter(j-> !valid[j])
+				.boxed()
+				.collect(Collectors.toList());
+		simulation.broadcast(index, deliverAt-> Message.complaint(index, complaints, deliverAt));
+		onComplaint(index, complaints);
+	}
+
+	private void onComplaint(int from, List<Integer> dealers) {
+		complained.addAll(dealers);
+		if(++complaintCount<n || verifiedCount<n) {
+			return;
+		}
+		finish();
+	}
+
+	private void finish() {
+		qual = IntStream.range(0,n)
+				.filter(j-> !complained.contains(j))
+				.boxed()
+				.collect(Collectors.toList());
+		BigInteger secret1 = qual.stream().map(j-> dealings[j].shares1.get(index)).reduce(BigInteger.ZERO, BigInteger::add).mod(q);
+		BigInteger secret2 = qual.stream().map(j-> dealings[j].shares2.get(index)).reduce(BigInteger.ZERO, BigInteger::add).mod(q);
+		publicKey = group.product(qual.stream()
+				.map(j-> dealings[j].publicVals1.get(0))
+				.collect(Collectors.toList()));
+		dealer.setFinalSecret1(secret1);
+		dealer.setFinalSecret2(secret2);
+		dealer.setFinalPublicVal(publicKey);
+		doneAt = simulation.elapsed();
+	}
+
+	PerdersonVss dealer() {
+		return dealer;
+	}
+}
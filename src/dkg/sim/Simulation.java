@@ -0,0 +1,205 @@
+package dkg.sim;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+import dkg.PerdersonVss;
+import dkg.PerdersonVssFactory;
+
+/**
+ * Runs n participants of a Pedersen VSS in one JVM, each on its own virtual thread
+ * (Java 21+; older runtimes use platform threads and take at most 1024
+ * participants) with its own mailbox, through dealing, share verification, complaints, QUAL, the
+ * final secrets and the public key. Every message is held back for latency plus a
+ * uniform random jitter before its receiver can take it. Dealings are passed by
+ * reference rather than encoded, so memory grows with the n^2 messages in flight
+ * and not with their size. Verification still costs n^2 multi-exponentiations of t
+ * terms, which bounds n on a given machine long before the thread count does.
+ */
+public final class Simulation {
+
+	public static final class Report {
+		public final int n;
+		public final long wallNanos;
+		public final boolean virtualThreads;
+		// every participant ended with the same QUAL and public key
+		public final boolean agreed;
+		public final List<Integer> qual;
+		public final BigInteger publicKey;
+		// per participant, sorted, nanos since the start
+		private final long[] dealt;
+		private final long[] qualReady;
+		private final long[] done;
+
+		Report(int n, long wallNanos, boolean virtualThreads, boolean agreed, List<Integer> qual, BigInteger publicKey,
+				long[] dealt, long[] qualReady, long[] done) {
+			this.n = n;
+			this.wallNanos = wallNanos;
+			this.virtualThreads = virtualThreads;
+			this.agreed = agreed;
+			this.qual = qual;
+			this.publicKey = publicKey;
+			this.dealt = dealt;
+			this.qualReady = qualReady;
+			this.done = done;
+		}
+
+		// finished participants per second
+		public double participantsPerSecond() {
+			return n/(wallNanos/1e9);
+		}
+
+		// verified (dealer, recipient) shares per second
+		public double sharesPerSecond() {
+			return (double)n*n/(wallNanos/1e9);
+		}
+
+		public long dealtNanos(double quantile) {
+			return quantile(dealt, quantile);
+		}
+
+		public long qualNanos(double quantile) {
+			return quantile(qualReady, quantile);
+		}
+
+		public long doneNanos(double quantile) {
+			return quantile(done, quantile);
+		}
+
+		private static long quantile(long[] sorted, double quantile) {
+			int i = (int)Math.ceil(quantile*sorted.length)-1;
+			return sorted[Math.max(0, Math.min(sorted.length-1, i))];
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder out = new StringBuilder();
+			out.append(String.format("n=%d wall=%.1fms threads=%s agreed=%b qual=%d%n",
+					n, wallNanos/1e6, virtualThreads ? "virtual" : "platform", agreed, qual.size()));
+			out.append(String.format("throughput: %.1f participants/s, %.0f shares/s%n",
+					participantsPerSecond(), sharesPerSecond()));
+			out.append(line("dealt", this::dealtNanos));
+			out.append(line("qual", this::qualNanos));
+			out.append(line("done", this::doneNanos));
+			return out.toString();
+		}
+
+		private static String line(String phase, DoubleToLongFunction at) {
+			return String.format("%-6s p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms%n", phase,
+					at.applyAsLong(0.5)/1e6, at.applyAsLong(0.9)/1e6, at.applyAsLong(0.99)/1e6, at.applyAsLong(1)/1e6);
+		}
+	}
+
+	private final int n;
+	private final long latencyNanos;
+	private final long jitterNanos;
+	private final List<Participant> participants;
+	private final CountDownLatch startGate = new CountDownLatch(1);
+	private final CountDownLatch finished;
+	private volatile long start;
+
+	// factory has to be set up for n participants
+	public Simulation(PerdersonVssFactory factory, int n) {
+		this(factory, n, 0, 0);
+	}
+
+	public Simulation(PerdersonVssFactory factory, int n, long latencyNanos, long jitterNanos) {
+		if(latencyNanos<0 || jitterNanos<0) {
+			throw new IllegalArgumentException("latency and jitter must not be negative");
+		}
+		this.n = n;
+		this.latencyNanos = latencyNanos;
+		this.jitterNanos = jitterNanos;
+		this.finished = new CountDownLatch(n);
+		this.participants = new ArrayList<>(n);
+		for(int i=0; i<n; i++) {
+			participants.add(new Participant(this, factory, i, n));
+		}
+	}
+
+	public Report run() throws InterruptedException {
+		ExecutorService threads = VirtualThreads.perTaskExecutor(n);
+		try {
+			participants.forEach(threads::execute);
+			start = System.nanoTime();
+			startGate.countDown();
+			finished.await();
+			long wallNanos = elapsed();
+			for(Participant participant: participants) {
+				if(participant.failure!=null) {
+					throw new IllegalStateException("participant failed", participant.failure);
+				}
+			}
+			Participant first = participants.get(0);
+			boolean agreed = participants.stream()
+					.allMatch(p-> p.qual.equals(first.qual) && p.publicKey.equals(first.publicKey));
+			return new Report(n, wallNanos, VirtualThreads.available(), agreed, first.qual, first.publicKey,
+					sorted(p-> p.dealtAt), sorted(p-> p.qualAt), sorted(p-> p.doneAt));
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+	// false on runtimes before Java 21, where every participant takes an OS thread
+	public static boolean virtualThreads() {
+		return VirtualThreads.available();
+	}
+
+	// the participants' dealings, final secrets set, once run has returned
+	public List<PerdersonVss> dealers() {
+		List<PerdersonVss> dealers = new ArrayList<>(n);
+		for(Participant participant: participants) {
+			dealers.add(participant.dealer());
+		}
+		return dealers;
+	}
+
+	private long[] sorted(ToLongFunction<Participant> time) {
+		long[] times = participants.stream().mapToLong(time).toArray();
+		Arrays.sort(times);
+		return times;
+	}
+
+	void awaitStart() throws InterruptedException {
+		startGate.await();
+	}
+
+	long elapsed() {
+		return System.nanoTime()-start;
+	}
+
+	void broadcast(int from, LongFunction<Message> message) {
+		for(int to=0; to<n; to++) {
+			if(to!=from) {
+				participants.get(to).mailbox.add(message.apply(deliverAt()));
+			}
+		}
+	}
+
+	private long deliverAt() {
+		long delay = latencyNanos;
+		if(jitterNanos>0) {
+			delay += ThreadLocalRandom.current().nextLong(jitterNanos+1);
+		}
+		return System.nanoTime()+delay;
+	}
+
+	// a failed participant ends the run, the others would wait for it forever
+	void finished(Participant participant) {
+		if(participant.failure!=null) {
+			while(finished.getCount()>0) {
+				finished.countDown();
+			}
+		} else {
+			finished.countDown();
+		}
+	}
+}
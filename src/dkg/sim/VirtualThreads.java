@@ -0,0 +1,48 @@
+package dkg.sim;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread per task executors. The build targets Java 17, so virtual threads are
+ * looked up at run time: on Java 21 and later every task gets a virtual thread.
+ * Older runtimes get a fixed pool of daemon platform threads, one per task, and
+ * refuse more than MAX_PLATFORM_THREADS tasks instead of starting thousands of
+ * OS threads; the tasks block, so fewer threads than tasks would deadlock.
+ */
+final class VirtualThreads {
+
+	static final int MAX_PLATFORM_THREADS = 1024;
+
+	private VirtualThreads() {
+	}
+
+	static boolean available() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch(NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	// room for tasks concurrent tasks, each on a thread of its own
+	static ExecutorService perTaskExecutor(int tasks) {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException e) {
+			if(tasks>MAX_PLATFORM_THREADS) {
+				throw new IllegalStateException(tasks+" participants need virtual threads, which Java "
+						+Runtime.version().feature()+" lacks; run on Java 21 or later, or with at most "
+						+MAX_PLATFORM_THREADS+" participants on platform threads");
+			}
+			AtomicInteger count = new AtomicInteger();
+			return Executors.newFixedThreadPool(tasks, r-> {
+				Thread thread = new Thread(r, "dkg-sim-"+count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package dkg.store;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+import dkg.KeyShare;
+
+/**
+ * Append-only file of key shares, memory mapped. Opening the store scans the
+ * records once and keeps the latest share per participant index, so reloading
+ * after a restart costs one sequential read of a few kilobytes.
+ *
+ * <pre>
+ * file    [magic:4][version:4] record* zero padding
+ * record  [length:4][crc32c:4][payload:length]
+ * payload [index:4][qual count:4][qual:4]*count [len:4][secret1] [len:4][secret2] [len:4][publicVal]
+ * </pre>
+ *
+ * Payload and checksum are forced to disk before the length is written, so a
+ * record torn by a crash reads as either zero length or a checksum mismatch;
+ * scanning stops there and the next append overwrites it. Every append also
+ * zeroes the length slot behind its record, so records that followed a
+ * corrupted one are not picked up again once it has been overwritten.
+ */
+public final class KeyShareStore implements AutoCloseable {
+
+	private static final int MAGIC = 0x444b4753; // "DKGS"
+	private static final int VERSION = 1;
+	private static final int HEADER = 8;
+	private static final int INITIAL_CAPACITY = 64*1024;
+
+	private final FileChannel channel;
+	private final TreeMap<Integer, KeyShare> latest = new TreeMap<>();
+	private MappedByteBuffer map;
+	private int end;
+
+	private KeyShareStore(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	public static KeyShareStore open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		KeyShareStore store = new KeyShareStore(channel);
+		try {
+			store.load();
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return store;
+	}
+
+	private void load() throws IOException {
+		long size = channel.size();
+		if(size>Integer.MAX_VALUE) {
+			throw new IOException("key share store too large: "+size);
+		}
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+		if(size==0) {
+			map.putInt(0, MAGIC).putInt(4, VERSION);
+			map.force();
+		} else if(map.getInt(0)!=MAGIC || map.getInt(4)!=VERSION) {
+			throw new IOException("not a key share store");
+		}
+		end = HEADER;
+		while(end+8<=map.capacity()) {
+			int length = map.getInt(end);
+			if(length<=0 || end+8+length>map.capacity()) {
+				break;
+			}
+			ByteBuffer payload = map.slice(end+8, length);
+			if(crc(payload)!=map.getInt(end+4)) {
+				break;
+			}
+			KeyShare share = decode(payload);
+			latest.put(share.index, share);
+			end += 8+length;
+		}
+	}
+
+	public synchronized void append(KeyShare share) throws IOException {
+		byte[] secret1 = share.secret1.toByteArray();
+		byte[] secret2 = share.secret2.toByteArray();
+		byte[] publicVal = share.publicVal.toByteArray();
+		int length = 8+4*share.qual.size()+12+secret1.length+secret2.length+publicVal.length;
+		ensureCapacity(end+8+length+4);
+
+		ByteBuffer payload = map.slice(end+8, length);
+		payload.putInt(share.index).putInt(share.qual.size());
+		share.qual.forEach(payload::putInt);
+		payload.putInt(secret1.length).put(secret1);
+		payload.putInt(secret2.length).put(secret2);
+		payload.putInt(publicVal.length).put(publicVal);
+		map.putInt(end+4, crc(payload.flip()));
+		// a zero length behind the record ends the scan there, even over records that followed a corrupted one
+		map.putInt(end+8+length, 0);
+		// checksum and payload reach the disk before the length that makes them visible
+		map.force(end+4, 4+length+4);
+		map.putInt(end, length);
+		map.force(end, 4);
+		end += 8+length;
+		latest.put(share.index, share);
+	}
+
+	public synchronized Optional<KeyShare> latest(int index) {
+		return Optional.ofNullable(latest.get(index));
+	}
+
+	// latest share of every participant in the store, by index
+	public synchronized List<KeyShare> latest() {
+		return new ArrayList<>(latest.values());
+	}
+
+	private void ensureCapacity(int needed) throws IOException {
+		if(needed<=map.capacity()) {
+			return;
+		}
+		long capacity = map.capacity();
+		while(capacity<needed) {
+			capacity *= 2;
+		}
+		if(capacity>Integer.MAX_VALUE) {
+			throw new IOException("key share store too large");
+		}
+		map.force();
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+	}
+
+	private static int crc(ByteBuffer payload) {
+		CRC32C crc = new CRC32C();
+		crc.update(payload.duplicate());
+		return (int)crc.getValue();
+	}
+
+	private static KeyShare decode(ByteBuffer payload) {
+		int index = payload.getInt();
+		int count = payload.getInt();
+		List<Integer> qual = new ArrayList<>(count);
+		for(int i=0; i<count; i++) {
+			qual.add(payload.getInt());
+		}
+		BigInteger secret1 = getBigInteger(payload);
+		BigInteger secret2 = getBigInteger(payload);
+		BigInteger publicVal = getBigInteger(payload);
+		return new KeyShare(index, secret1, secret2, publicVal, qual);
+	}
+
+	private static BigInteger getBigInteger(ByteBuffer payload) {
+		byte[] bytes = new byte[payload.getInt()];
+		payload.get(bytes);
+		return new BigInteger(bytes);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		map.force();
+		channel.close();
+	}
+}
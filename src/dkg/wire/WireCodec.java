@@ -0,0 +1,212 @@
+package dkg.wire;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import dkg.GroupParams;
+import dkg.group.Group;
+
+/**
+ * Binary encoding of protocol values for one group. Group elements take exactly
+ * {@link Group#elementBytes()} bytes and are checked with {@link Group#isCanonical},
+ * scalars, the ciphertext challenge e included, are unsigned big-endian integers
+ * of ceil(|q|/8) bytes, so a vector needs only its count as prefix. Values without a
+ * bound (the masked message and label of a ciphertext) carry a 4 byte length and
+ * their two's complement bytes. All methods read and write at the buffer's position; decoding
+ * from a heap buffer builds the BigInteger straight from the backing array.
+ *
+ * <pre>
+ * elements          [count:4][element]*count
+ * share pair        [scalar s1][scalar s2]
+ * decryption share  [i:4][element ui][element u^s][element g^s][scalar f]
+ * ciphertext        [len:4][c][len:4][L][element u][element _u][scalar e][scalar f]
+ * </pre>
+ */
+public final class WireCodec {
+
+	private final Group group;
+	private final BigInteger q;
+	private final int elementBytes;
+	private final int scalarBytes;
+
+	public WireCodec(GroupParams params) {
+		this.group = params.getGroup();
+		this.q = params.getQ();
+		this.elementBytes = group.elementBytes();
+		this.scalarBytes = (q.bitLength()+7)/8;
+	}
+
+	public int elementBytes() {
+		return elementBytes;
+	}
+
+	public int scalarBytes() {
+		return scalarBytes;
+	}
+
+	public void putElement(ByteBuffer out, BigInteger element) {
+		putFixed(out, element, elementBytes);
+	}
+
+	public BigInteger getElement(ByteBuffer in) {
+		BigInteger element = getFixed(in, elementBytes, null);
+		if(!group.isCanonical(element)) {
+			throw new IllegalArgumentException("not a group element");
+		}
+		return element;
+	}
+
+	public void putScalar(ByteBuffer out, BigInteger scalar) {
+		putFixed(out, scalar, scalarBytes);
+	}
+
+	public BigInteger getScalar(ByteBuffer in) {
+		return getFixed(in, scalarBytes, q);
+	}
+
+	public int elementsSize(int count) {
+		return 4+count*elementBytes;
+	}
+
+	public void putElements(ByteBuffer out, List<BigInteger> elements) {
+		out.putInt(elements.size());
+		for(BigInteger element: elements) {
+			putElement(out, element);
+		}
+	}
+
+	public List<BigInteger> getElements(ByteBuffer in) {
+		int count = in.getInt();
+		if(count<0 || (long)count*elementBytes>in.remaining()) {
+			throw new IllegalArgumentException("element count out of range: "+count);
+		}
+		List<BigInteger> elements = new ArrayList<>(count);
+		for(int i=0; i<count; i++) {
+			elements.add(getElement(in));
+		}
+		return elements;
+	}
+
+	public int sharePairSize() {
+		return 2*scalarBytes;
+	}
+
+	public void putSharePair(ByteBuffer out, BigInteger share1, BigInteger share2) {
+		putScalar(out, share1);
+		putScalar(out, share2);
+	}
+
+	// {share1, share2}
+	public BigInteger[] getSharePair(ByteBuffer in) {
+		return new BigInteger[] {getScalar(in), getScalar(in)};
+	}
+
+	public int decryptionShareSize() {
+		return 4+3*elementBytes+scalarBytes;
+	}
+
+	// share in the [i, ui, u^s, g^s, f] form produced by decryptBatch
+	public void putDecryptionShare(ByteBuffer out, List<BigInteger> share) {
+		if(share.size()!=5) {
+			throw new IllegalArgumentException("decryption share needs 5 values");
+		}
+		out.putInt(share.get(0).intValueExact());
+		putElement(out, share.get(1));
+		putElement(out, share.get(2));
+		putElement(out, share.get(3));
+		putScalar(out, share.get(4));
+	}
+
+	public List<BigInteger> getDecryptionShare(ByteBuffer in) {
+		BigInteger i = BigInteger.valueOf(in.getInt());
+		BigInteger ui = getElement(in);
+		BigInteger _ui = getElement(in);
+		BigInteger _hi = getElement(in);
+		return Arrays.asList(i, ui, _ui, _hi, getScalar(in));
+	}
+
+	public int ciphertextSize(List<BigInteger> ciphertext) {
+		return 8+ciphertext.get(0).bitLength()/8+1+ciphertext.get(1).bitLength()/8+1+2*elementBytes+2*scalarBytes;
+	}
+
+	// ciphertext [c, L, u, _u, e, f] as returned by encrypt
+	public void putCiphertext(ByteBuffer out, List<BigInteger> ciphertext) {
+		if(ciphertext.size()!=6) {
+			throw new IllegalArgumentException("ciphertext needs 6 values");
+		}
+		putVariable(out, ciphertext.get(0));
+		putVariable(out, ciphertext.get(1));
+		putElement(out, ciphertext.get(2));
+		putElement(out, ciphertext.get(3));
+		putScalar(out, ciphertext.get(4));
+		putScalar(out, ciphertext.get(5));
+	}
+
+	public List<BigInteger> getCiphertext(ByteBuffer in) {
+		BigInteger c = getVariable(in);
+		BigInteger L = getVariable(in);
+		BigInteger u = getElement(in);
+		BigInteger _u = getElement(in);
+		BigInteger e = getScalar(in);
+		return Arrays.asList(c, L, u, _u, e, getScalar(in));
+	}
+
+	private static void putFixed(ByteBuffer out, BigInteger value, int width) {
+		if(value.signum()<0 || value.bitLength()>8*width) {
+			throw new IllegalArgumentException("value does not fit in "+width+" bytes");
+		}
+		byte[] bytes = value.toByteArray();
+		// toByteArray may carry one leading sign byte
+		int skip = bytes.length>width ? bytes.length-width : 0;
+		for(int i=bytes.length-skip; i<width; i++) {
+			out.put((byte)0);
+		}
+		out.put(bytes, skip, bytes.length-skip);
+	}
+
+	// bound null: any width byte value
+	private static BigInteger getFixed(ByteBuffer in, int width, BigInteger bound) {
+		if(in.remaining()<width) {
+			throw new BufferUnderflowException();
+		}
+		BigInteger value;
+		if(in.hasArray()) {
+			value = new BigInteger(1, in.array(), in.arrayOffset()+in.position(), width);
+			in.position(in.position()+width);
+		} else {
+			byte[] bytes = new byte[width];
+			in.get(bytes);
+			value = new BigInteger(1, bytes);
+		}
+		if(bound!=null && value.compareTo(bound)>=0) {
+			throw new IllegalArgumentException("value out of range");
+		}
+		return value;
+	}
+
+	private static void putVariable(ByteBuffer out, BigInteger value) {
+		byte[] bytes = value.toByteArray();
+		out.putInt(bytes.length).put(bytes);
+	}
+
+	private static BigInteger getVariable(ByteBuffer in) {
+		int length = in.getInt();
+		if(length<1 || length>in.remaining()) {
+			throw new IllegalArgumentException("length out of range: "+length);
+		}
+		BigInteger value;
+		if(in.hasArray()) {
+			value = new BigInteger(in.array(), in.arrayOffset()+in.position(), length);
+			in.position(in.position()+length);
+		} else {
+			byte[] bytes = new byte[length];
+			in.get(bytes);
+			value = new BigInteger(bytes);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,127 @@
+package dkg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dkg.metrics.DkgMetrics;
+import dkg.metrics.Phase;
+
+class BatchVerificationTest {
+
+	private static final int T = 3;
+	private static final int N = 8;
+	private static final int BAD = 5;
+
+	private final GroupParams params = GroupParams.modp1024();
+	private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+	private PerdersonVssFactory factory;
+	private List<PerdersonVss> dkgPoints;
+
+	@BeforeEach
+	void deal() {
+		factory = new PerdersonVssFactory(params, T, N);
+		factory.setMetrics(new DkgMetrics() {
+			@Override
+			public void verificationFailed(Phase phase, int dealer, int recipient, String reason) {
+				failures.add(dealer+"->"+recipient+": "+reason);
+			}
+		});
+		dkgPoints = Stream.generate(factory)
+				.limit(N)
+				.collect(Collectors.toList());
+	}
+
+	private void corruptShare(int dealer, int recipient) {
+		List<BigInteger> shares1 = dkgPoints.get(dealer).shares1;
+		shares1.set(recipient, shares1.get(recipient).add(BigInteger.ONE).mod(params.getQ()));
+	}
+
+	private static List<Integer> allBut(int... excluded) {
+		Set<Integer> skip = IntStream.of(excluded).boxed().collect(Collectors.toSet());
+		return IntStream.range(0, N)
+				.filter(j-> !skip.contains(j))
+				.boxed()
+				.collect(Collectors.toList());
+	}
+
+	private Set<String> failuresMatching(String reason) {
+		return failures.stream()
+				.filter(f-> f.endsWith(reason))
+				.map(f-> f.substring(0, f.indexOf(':')))
+				.collect(Collectors.toCollection(TreeSet::new));
+	}
+
+	private static Set<String> pairs(int dealer, List<Integer> recipients) {
+		return recipients.stream()
+				.map(r-> dealer+"->"+r)
+				.collect(Collectors.toCollection(TreeSet::new));
+	}
+
+	@Test
+	void honestDealersAllQualify() {
+		List<List<Integer>> quals = factory.calCollectedQuals(dkgPoints);
+		quals.forEach(qual-> assertEquals(allBut(), qual));
+		assertEquals(allBut(), factory.calSingleQual(dkgPoints, 0));
+		assertEquals(List.of(), List.copyOf(failures));
+	}
+
+	@Test
+	void bisectionFindsTheOneBadDealer() {
+		IntStream.range(0, N).forEach(r-> corruptShare(BAD, r));
+
+		List<List<Integer>> quals = factory.calCollectedQuals(dkgPoints);
+		quals.forEach(qual-> assertEquals(allBut(BAD), qual));
+		assertEquals(pairs(BAD, allBut()), failuresMatching("share does not match commitments"));
+
+		failures.clear();
+		assertEquals(allBut(BAD), factory.calSingleQual(dkgPoints, 2));
+		assertEquals(pairs(BAD, List.of(2)), failuresMatching("share does not match commitments"));
+	}
+
+	@Test
+	void oneBadShareOnlyDisqualifiesForItsRecipient() {
+		corruptShare(BAD, 4);
+
+		List<List<Integer>> quals = factory.calCollectedQuals(dkgPoints);
+		for(int r=0; r<N; r++) {
+			assertEquals(r==4 ? allBut(BAD) : allBut(), quals.get(r), "qual of "+r);
+		}
+		assertEquals(pairs(BAD, List.of(4)), failuresMatching("share does not match commitments"));
+	}
+
+	@Test
+	void commitmentsOutsideTheSubgroupFailEveryShare() {
+		// p-1 has order 2, so it is not in the order q subgroup
+		dkgPoints.get(BAD).publicVals.set(0, params.getP().subtract(BigInteger.ONE));
+
+		List<List<Integer>> quals = factory.calCollectedQuals(dkgPoints);
+		quals.forEach(qual-> assertEquals(allBut(BAD), qual));
+		assertEquals(pairs(BAD, allBut()), failuresMatching("commitments outside the subgroup"));
+		assertEquals(Set.of(), failuresMatching("share does not match commitments"));
+	}
+
+	@Test
+	void batchAndSingleVerificationAgree() {
+		corruptShare(1, 0);
+		IntStream.range(0, N).forEach(r-> corruptShare(BAD, r));
+
+		List<List<Integer>> batched = factory.calCollectedQuals(dkgPoints);
+		factory.setBatchVerification(false);
+		List<List<Integer>> single = factory.calCollectedQuals(dkgPoints);
+		assertEquals(single, batched);
+		assertEquals(allBut(1, BAD), batched.get(0));
+		assertEquals(allBut(BAD), batched.get(1));
+	}
+}
@@ -0,0 +1,197 @@
+package dkg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import dkg.exception.InvalidCiphertextException;
+import dkg.exception.RequestRejectedException;
+import dkg.metrics.DkgMetrics;
+import dkg.metrics.Phase;
+
+class DecryptionServiceTest {
+
+	private static final int T = 2;
+	private static final int N = 4;
+
+	private static PerdersonVssFactory factory;
+	private static List<KeyShare> keyShares;
+	private static BigInteger publicVal;
+
+	@BeforeAll
+	static void runDkg() {
+		factory = new PerdersonVssFactory(GroupParams.modp1024(), T, N);
+		factory.setMetrics(DkgMetrics.NOOP);
+		List<PerdersonVss> dkgPoints = Stream.generate(factory)
+				.limit(N)
+				.collect(Collectors.toList());
+		List<List<Integer>> quals = factory.calCollectedQuals(dkgPoints);
+		List<BigInteger> secret1s = factory.calCollectedSecret1(quals, dkgPoints);
+		List<BigInteger> secret2s = factory.calCollectedSecret2(quals, dkgPoints);
+		List<BigInteger> publicVals = factory.calCollectedPublicVal(quals, dkgPoints);
+		IntStream.range(0, N).forEach(i-> {
+			dkgPoints.get(i).setFinalSecret1(secret1s.get(i));
+			dkgPoints.get(i).setFinalSecret2(secret2s.get(i));
+			dkgPoints.get(i).setFinalPublicVal(publicVals.get(i));
+		});
+		keyShares = IntStream.range(0, N)
+				.mapToObj(i-> KeyShare.of(dkgPoints.get(i), i, quals.get(0)))
+				.collect(Collectors.toList());
+		publicVal = publicVals.get(0);
+	}
+
+	@AfterEach
+	void resetMetrics() {
+		factory.setMetrics(DkgMetrics.NOOP);
+	}
+
+	private static List<BigInteger> encrypt(long m) {
+		return factory.encrypt(BigInteger.valueOf(m), BigInteger.valueOf(30), publicVal);
+	}
+
+	// holds the coalescing thread at the end of its first batch until released
+	private static final class BatchGate implements DkgMetrics {
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicBoolean first = new AtomicBoolean(true);
+
+		@Override
+		public void phaseCompleted(Phase phase, long nanos) {
+			if(phase==Phase.DECRYPT && first.compareAndSet(true, false)) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	private static Throwable cause(CompletableFuture<?> future) throws InterruptedException {
+		try {
+			future.get(10, TimeUnit.SECONDS);
+		} catch(ExecutionException e) {
+			return e.getCause();
+		} catch(TimeoutException e) {
+			throw new AssertionError("request did not complete", e);
+		}
+		throw new AssertionError("request succeeded");
+	}
+
+	@Test
+	void decryptsConcurrentRequests() throws Exception {
+		try(DecryptionService service = new DecryptionService(factory, keyShares, 8, 64, Duration.ofMillis(5))) {
+			List<CompletableFuture<BigInteger>> results = new ArrayList<>();
+			for(int m=1; m<=20; m++) {
+				results.add(service.submit(encrypt(m)));
+			}
+			for(int m=1; m<=20; m++) {
+				assertEquals(BigInteger.valueOf(m), results.get(m-1).get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(BigInteger.valueOf(21), service.decrypt(encrypt(21)));
+			assertEquals(21, service.decrypted());
+			assertTrue(service.batches()<21, service.toString());
+		}
+	}
+
+	@Test
+	void fullQueueRejects() throws Exception {
+		BatchGate gate = new BatchGate();
+		factory.setMetrics(gate);
+		try(DecryptionService service = new DecryptionService(factory, keyShares, 1, 1, Duration.ZERO)) {
+			CompletableFuture<BigInteger> running = service.submit(encrypt(1));
+			assertTrue(gate.entered.await(10, TimeUnit.SECONDS));
+			CompletableFuture<BigInteger> queued = service.submit(encrypt(2));
+			CompletableFuture<BigInteger> rejected = service.submit(encrypt(3));
+
+			assertTrue(rejected.isCompletedExceptionally());
+			assertInstanceOf(RequestRejectedException.class, cause(rejected));
+			assertEquals(1, service.queued());
+
+			gate.release.countDown();
+			assertEquals(BigInteger.ONE, running.get(10, TimeUnit.SECONDS));
+			assertEquals(BigInteger.TWO, queued.get(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	void closeFinishesTheRunningBatchAndRejectsTheRest() throws Exception {
+		BatchGate gate = new BatchGate();
+		factory.setMetrics(gate);
+		DecryptionService service = new DecryptionService(factory, keyShares, 1, 4, Duration.ZERO);
+		CompletableFuture<BigInteger> running = service.submit(encrypt(1));
+		assertTrue(gate.entered.await(10, TimeUnit.SECONDS));
+		CompletableFuture<BigInteger> queued = service.submit(encrypt(2));
+
+		Thread closer = new Thread(service::close);
+		closer.start();
+		// close waits for the running batch
+		closer.join(200);
+		assertTrue(closer.isAlive());
+		gate.release.countDown();
+		closer.join(10_000);
+
+		assertEquals(BigInteger.ONE, running.get(10, TimeUnit.SECONDS));
+		assertInstanceOf(RequestRejectedException.class, cause(queued));
+		assertInstanceOf(RequestRejectedException.class, cause(service.submit(encrypt(3))));
+		assertThrows(RequestRejectedException.class, ()-> service.decrypt(encrypt(4)));
+		service.close();
+	}
+
+	@Test
+	void malformedRequestFailsAlone() throws Exception {
+		try(DecryptionService service = new DecryptionService(factory, keyShares)) {
+			CompletableFuture<BigInteger> malformed = service.submit(List.of(BigInteger.ONE));
+			assertTrue(malformed.isCompletedExceptionally());
+			assertInstanceOf(InvalidCiphertextException.class, cause(malformed));
+			assertThrows(InvalidCiphertextException.class, ()-> service.decrypt(List.of()));
+			assertEquals(0, service.queued());
+
+			// a well-formed ciphertext with a wrong proof fails in its batch without taking the others down
+			List<BigInteger> forged = new ArrayList<>(encrypt(5));
+			forged.set(5, forged.get(5).add(BigInteger.ONE).mod(GroupParams.modp1024().getQ()));
+			CompletableFuture<BigInteger> invalid = service.submit(forged);
+			CompletableFuture<BigInteger> valid = service.submit(encrypt(6));
+			assertInstanceOf(InvalidCiphertextException.class, cause(invalid));
+			assertEquals(BigInteger.valueOf(6), valid.get(10, TimeUnit.SECONDS));
+			assertEquals(3, service.failed());
+		}
+	}
+
+	@Test
+	void keySharesAreChecked() {
+		assertThrows(IllegalArgumentException.class, ()-> new DecryptionService(factory, List.of()));
+		assertThrows(IllegalArgumentException.class, ()-> factory.decrypt(encrypt(1), List.<KeyShare>of()));
+		assertThrows(IllegalArgumentException.class, ()-> factory.decryptBatch(List.of(encrypt(1)), List.<KeyShare>of()));
+
+		List<KeyShare> mixed = new ArrayList<>(keyShares);
+		KeyShare last = mixed.get(N-1);
+		mixed.set(N-1, new KeyShare(last.index, last.secret1, last.secret2, last.publicVal, List.of(0)));
+		assertThrows(IllegalArgumentException.class, ()-> new DecryptionService(factory, mixed));
+
+		List<KeyShare> reordered = new ArrayList<>(keyShares);
+		reordered.set(0, keyShares.get(1));
+		reordered.set(1, keyShares.get(0));
+		assertThrows(IllegalArgumentException.class, ()-> new DecryptionService(factory, reordered));
+	}
+}
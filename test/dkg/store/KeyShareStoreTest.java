@@ -0,0 +1,106 @@
+package dkg.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dkg.KeyShare;
+
+class KeyShareStoreTest {
+
+	private static final int FIRST_RECORD = 8;
+
+	@TempDir
+	Path dir;
+
+	private static KeyShare share(int index, long secret) {
+		return new KeyShare(index, BigInteger.valueOf(secret), BigInteger.valueOf(secret+1),
+				BigInteger.valueOf(secret+2), List.of(0, 1, 2));
+	}
+
+	@Test
+	void reopenKeepsLatestSharePerIndex() throws IOException {
+		Path path = dir.resolve("shares");
+		try(KeyShareStore store = KeyShareStore.open(path)) {
+			store.append(share(0, 10));
+			store.append(share(1, 20));
+			store.append(share(0, 30));
+		}
+		try(KeyShareStore store = KeyShareStore.open(path)) {
+			assertEquals(List.of(share(0, 30), share(1, 20)), store.latest());
+		}
+	}
+
+	@Test
+	void truncatedRecordIsDroppedAndOverwritten() throws IOException {
+		Path path = dir.resolve("shares");
+		try(KeyShareStore store = KeyShareStore.open(path)) {
+			store.append(share(0, 10));
+			store.append(share(1, 20));
+		}
+		int second = FIRST_RECORD+8+readInt(path, FIRST_RECORD);
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(second+10);
+		}
+
+		try(KeyShareStore store = KeyShareStore.open(path)) {
+			assertEquals(List.of(share(0, 10)), store.latest());
+			store.append(share(2, 40));
+		}
+		try(KeyShareStore store = KeyShareStore.open(path)) {
+			assertEquals(List.of(share(0, 10), share(2, 40)), store.latest());
+		}
+	}
+
+	@Test
+	void corruptedRecordEndsTheScan() throws IOException {
+		Path path = dir.resolve("shares");
+		try(KeyShareStore store = KeyShareStore.open(path)) {
+			store.append(share(0, 10));
+			store.append(share(1, 20));
+			store.append(share(2, 30));
+		}
+		int second = FIRST_RECORD+8+readInt(path, FIRST_RECORD);
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer b = ByteBuffer.allocate(1);
+			channel.read(b, second+8);
+			b.put(0, (byte)(b.get(0)^1));
+			channel.write(b.flip(), second+8);
+		}
+
+		// records behind the corrupted one are unreachable and get overwritten
+		try(KeyShareStore store = KeyShareStore.open(path)) {
+			assertEquals(List.of(share(0, 10)), store.latest());
+			store.append(share(1, 50));
+		}
+		try(KeyShareStore store = KeyShareStore.open(path)) {
+			assertEquals(List.of(share(0, 10), share(1, 50)), store.latest());
+		}
+	}
+
+	@Test
+	void foreignFileIsRejected() throws IOException {
+		Path path = dir.resolve("shares");
+		Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		assertThrows(IOException.class, ()-> KeyShareStore.open(path));
+	}
+
+	private static int readInt(Path path, long position) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer b = ByteBuffer.allocate(4);
+			channel.read(b, position);
+			return b.getInt(0);
+		}
+	}
+}
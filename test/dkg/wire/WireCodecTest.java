@@ -0,0 +1,144 @@
+package dkg.wire;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import dkg.GroupParams;
+import dkg.PerdersonVssFactory;
+import dkg.group.Group;
+
+class WireCodecTest {
+
+	static Stream<Arguments> groups() {
+		IntFunction<ByteBuffer> heap = ByteBuffer::allocate;
+		IntFunction<ByteBuffer> direct = ByteBuffer::allocateDirect;
+		return Stream.of(GroupParams.modp1024(), GroupParams.secp256k1())
+				.flatMap(params-> Stream.of(Arguments.of(params, heap), Arguments.of(params, direct)));
+	}
+
+	private static BigInteger element(GroupParams params, long exponent) {
+		return params.getGroup().pow(params.getG(), BigInteger.valueOf(exponent));
+	}
+
+	@ParameterizedTest
+	@MethodSource("groups")
+	void elementsRoundTrip(GroupParams params, IntFunction<ByteBuffer> allocate) {
+		WireCodec codec = new WireCodec(params);
+		Group group = params.getGroup();
+		List<BigInteger> elements = List.of(group.identity(), params.getG(), params.getH(), element(params, 12345));
+		ByteBuffer buffer = allocate.apply(codec.elementsSize(elements.size()));
+		codec.putElements(buffer, elements);
+		assertFalse(buffer.hasRemaining());
+		assertEquals(elements, codec.getElements(buffer.flip()));
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@ParameterizedTest
+	@MethodSource("groups")
+	void sharePairRoundTrip(GroupParams params, IntFunction<ByteBuffer> allocate) {
+		WireCodec codec = new WireCodec(params);
+		BigInteger q = params.getQ();
+		ByteBuffer buffer = allocate.apply(codec.sharePairSize());
+		codec.putSharePair(buffer, BigInteger.ONE, q.subtract(BigInteger.ONE));
+		assertArrayEquals(new BigInteger[] {BigInteger.ONE, q.subtract(BigInteger.ONE)}, codec.getSharePair(buffer.flip()));
+	}
+
+	@ParameterizedTest
+	@MethodSource("groups")
+	void decryptionShareRoundTrip(GroupParams params, IntFunction<ByteBuffer> allocate) {
+		WireCodec codec = new WireCodec(params);
+		List<BigInteger> share = Arrays.asList(BigInteger.valueOf(7), element(params, 3), element(params, 5),
+				element(params, 11), params.getQ().subtract(BigInteger.TWO));
+		ByteBuffer buffer = allocate.apply(codec.decryptionShareSize());
+		codec.putDecryptionShare(buffer, share);
+		assertFalse(buffer.hasRemaining());
+		assertEquals(share, codec.getDecryptionShare(buffer.flip()));
+	}
+
+	@ParameterizedTest
+	@MethodSource("groups")
+	void ciphertextRoundTrip(GroupParams params, IntFunction<ByteBuffer> allocate) {
+		WireCodec codec = new WireCodec(params);
+		PerdersonVssFactory factory = new PerdersonVssFactory(params, 2, 3);
+		List<BigInteger> ciphertext = factory.encrypt(new BigInteger("203213123"), BigInteger.valueOf(30), element(params, 99));
+		ByteBuffer buffer = allocate.apply(codec.ciphertextSize(ciphertext));
+		codec.putCiphertext(buffer, ciphertext);
+		assertFalse(buffer.hasRemaining());
+		assertEquals(ciphertext, codec.getCiphertext(buffer.flip()));
+	}
+
+	@ParameterizedTest
+	@MethodSource("groups")
+	void truncatedFramesUnderflow(GroupParams params, IntFunction<ByteBuffer> allocate) {
+		WireCodec codec = new WireCodec(params);
+		ByteBuffer buffer = allocate.apply(codec.decryptionShareSize());
+		codec.putDecryptionShare(buffer, Arrays.asList(BigInteger.ONE, element(params, 3), element(params, 5),
+				element(params, 11), BigInteger.TEN));
+		buffer.flip().limit(buffer.limit()-1);
+		assertThrows(BufferUnderflowException.class, ()-> codec.getDecryptionShare(buffer));
+
+		ByteBuffer scalar = allocate.apply(codec.scalarBytes()-1);
+		assertThrows(BufferUnderflowException.class, ()-> codec.getScalar(scalar));
+	}
+
+	@ParameterizedTest
+	@MethodSource("groups")
+	void malformedValuesAreRejected(GroupParams params, IntFunction<ByteBuffer> allocate) {
+		WireCodec codec = new WireCodec(params);
+
+		// not canonical: larger than any encoded element
+		ByteBuffer element = allocate.apply(codec.elementBytes());
+		while(element.hasRemaining()) {
+			element.put((byte)0xff);
+		}
+		assertThrows(IllegalArgumentException.class, ()-> codec.getElement(element.flip()));
+
+		// q fits the scalar width but is out of range
+		ByteBuffer scalar = allocate.apply(codec.scalarBytes());
+		codec.putScalar(scalar, params.getQ());
+		assertThrows(IllegalArgumentException.class, ()-> codec.getScalar(scalar.flip()));
+
+		// two elements announced, one present
+		ByteBuffer count = allocate.apply(codec.elementsSize(1)).putInt(0, 2);
+		assertThrows(IllegalArgumentException.class, ()-> codec.getElements(count));
+		ByteBuffer negative = allocate.apply(4).putInt(-1).flip();
+		assertThrows(IllegalArgumentException.class, ()-> codec.getElements(negative));
+	}
+
+	@ParameterizedTest
+	@MethodSource("groups")
+	void variableLengthIsChecked(GroupParams params, IntFunction<ByteBuffer> allocate) {
+		WireCodec codec = new WireCodec(params);
+		ByteBuffer empty = allocate.apply(4).putInt(0).flip();
+		assertThrows(IllegalArgumentException.class, ()-> codec.getCiphertext(empty));
+		ByteBuffer tooLong = allocate.apply(8).putInt(5).putInt(1).flip();
+		assertThrows(IllegalArgumentException.class, ()-> codec.getCiphertext(tooLong));
+		ByteBuffer negative = allocate.apply(4).putInt(-4).flip();
+		assertThrows(IllegalArgumentException.class, ()-> codec.getCiphertext(negative));
+	}
+
+	@ParameterizedTest
+	@MethodSource("groups")
+	void oversizedValuesAreNotWritten(GroupParams params, IntFunction<ByteBuffer> allocate) {
+		WireCodec codec = new WireCodec(params);
+		ByteBuffer buffer = allocate.apply(codec.scalarBytes()+codec.decryptionShareSize());
+		assertThrows(IllegalArgumentException.class, ()-> codec.putScalar(buffer, BigInteger.ONE.shiftLeft(8*codec.scalarBytes())));
+		assertThrows(IllegalArgumentException.class, ()-> codec.putScalar(buffer, BigInteger.ONE.negate()));
+		assertThrows(IllegalArgumentException.class, ()-> codec.putDecryptionShare(buffer, List.of(BigInteger.ONE)));
+		assertEquals(0, buffer.position());
+	}
+}